@@ -0,0 +1,79 @@
+package com.example.packetlogger.benchmark;
+
+import com.example.packetlogger.config.BaseProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class BenchmarkSupport {
+
+    static final List<String> HIDE_KEYWORDS = List.of("password", "token", "cardNumber");
+
+    private BenchmarkSupport() {
+    }
+
+    static BaseProperties.PacketLogger options(List<String> patterns) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("packet-logger.enabled", "true");
+        properties.put("packet-logger.service-name", "benchmark");
+        properties.put("packet-logger.tag", "packet-logger");
+        properties.put("packet-logger.hide-keywords", String.join(",", HIDE_KEYWORDS));
+        properties.put("packet-logger.send-headers", "content-type,content-length");
+        properties.put("packet-logger.receive-headers", "user-agent,x-forwarded-for,x-b3-traceid,content-type,content-length");
+        properties.put("packet-logger.drop-event", "/actuator/health");
+        for (int i = 0; i < patterns.size(); i++) {
+            properties.put("packet-logger.register-pattern[" + i + "]", patterns.get(i));
+        }
+        return new Binder(new MapConfigurationPropertySource(properties))
+                .bind("packet-logger", BaseProperties.PacketLogger.class)
+                .get();
+    }
+
+    static List<String> patterns(int count) {
+        List<String> patterns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            switch (i % 4) {
+                case 0:
+                    patterns.add("/api/v1/resource" + i + "/:id");
+                    break;
+                case 1:
+                    patterns.add("/api/v1/resource" + i + "/:id/items/:itemId");
+                    break;
+                case 2:
+                    patterns.add("/api/v2/resource" + i + "/search");
+                    break;
+                default:
+                    patterns.add("/api/v2/:tenant/resource" + i + "/:id");
+            }
+        }
+        return patterns;
+    }
+
+    static String body(int bytes) {
+        StringBuilder body = new StringBuilder(bytes + 256)
+                .append("{\"code\":\"0000\",\"message\":\"success\",\"token\":\"eyJhbGciOiJIUzI1NiJ9\",\"data\":{\"items\":[");
+        for (int i = 0; body.length() < bytes; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"id\":").append(i)
+                    .append(",\"name\":\"item-").append(i)
+                    .append("\",\"price\":").append(i * 100 + 0.5)
+                    .append(",\"password\":\"secret-").append(i)
+                    .append("\",\"tags\":[\"a\",\"b\",\"c\"],\"owner\":{\"cardNumber\":\"1234-5678\",\"active\":true}}");
+        }
+        return body.append("]}}").toString();
+    }
+
+    static int parseSize(String size) {
+        String value = size.trim().toUpperCase();
+        if (value.endsWith("KB")) {
+            return Integer.parseInt(value.substring(0, value.length() - 2)) * 1024;
+        }
+        return Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.packetlogger.benchmark;
+
+import com.example.packetlogger.aggregate.PacketAggregator;
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.dedup.BodyCache;
+import com.example.packetlogger.filter.LoggerFilter;
+import com.example.packetlogger.filter.PacketAssembler;
+import com.example.packetlogger.metrics.PacketMetrics;
+import com.example.packetlogger.plan.PacketPlanHolder;
+import com.example.packetlogger.sampling.PacketSampler;
+import com.example.packetlogger.sink.PacketSink;
+import com.example.packetlogger.worker.PacketDispatcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Runs {@code doFilterInternal} end to end against mock servlet objects, with a sink that only hands records to the blackhole.
+ * The dispatcher runs the assembler inline so the measured cost still includes masking and serialization.
+ * Request, response and chain are created per invocation, so {@code bare} measures that fixed cost on its own.
+ */
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+
+    @Param({"1KB", "16KB", "200KB"})
+    String bodySize;
+
+    LoggerFilter filter;
+    HttpServlet servlet;
+    byte[] requestBody;
+    byte[] responseBody;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        BaseProperties.PacketLogger options = BenchmarkSupport.options(BenchmarkSupport.patterns(100));
+        PacketSink sink = blackhole::consume;
+
+        PacketPlanHolder plans = PacketPlanHolder.of(options, objectMapper.getFactory());
+        PacketAssembler assembler = new PacketAssembler(plans, sink, PacketMetrics.NOOP, BodyCache.DISABLED);
+
+        filter = new LoggerFilter(
+                plans,
+                PacketSampler.of(options),
+                PacketMetrics.NOOP,
+                new PacketDispatcher(Runnable::run, assembler),
+                PacketAggregator.of(options, plans.get().getPacketEncoder(), sink));
+
+        requestBody = BenchmarkSupport.body(512).getBytes(StandardCharsets.UTF_8);
+        responseBody = BenchmarkSupport.body(BenchmarkSupport.parseSize(bodySize)).getBytes(StandardCharsets.UTF_8);
+        servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                req.getInputStream().readAllBytes();
+                resp.setStatus(200);
+                resp.setContentType("application/json");
+                resp.getOutputStream().write(responseBody);
+            }
+        };
+    }
+
+    @Benchmark
+    public MockHttpServletResponse bare() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new MockFilterChain(servlet).doFilter(request(), response);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse filtered() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(), response, new MockFilterChain(servlet));
+        return response;
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/resource4/42");
+        request.setServletPath("/api/v1/resource4/42");
+        request.setContentType("application/json");
+        request.addHeader("user-agent", "Mozilla/5.0");
+        request.addHeader("x-b3-traceid", "463ac35c9f6413ad48485a3953bb6124");
+        request.setContent(requestBody);
+        return request;
+    }
+}
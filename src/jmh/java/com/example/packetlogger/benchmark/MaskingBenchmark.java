@@ -0,0 +1,70 @@
+package com.example.packetlogger.benchmark;
+
+import com.example.packetlogger.mask.JsonMasker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@code treeRoundTrip} reproduces the former mapContent, filterContent, writeValueAsString path as a reference.
+ */
+@State(Scope.Benchmark)
+public class MaskingBenchmark {
+
+    @Param({"1KB", "16KB", "200KB"})
+    String bodySize;
+
+    ObjectMapper objectMapper;
+    JsonMasker jsonMasker;
+    String content;
+    byte[] bytes;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        jsonMasker = new JsonMasker(objectMapper.getFactory(), BenchmarkSupport.HIDE_KEYWORDS);
+        content = BenchmarkSupport.body(BenchmarkSupport.parseSize(bodySize));
+        bytes = content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object streamingMask() {
+        return jsonMasker.mask(bytes);
+    }
+
+    @Benchmark
+    public String treeRoundTrip() throws JsonProcessingException {
+        Map<String, Object> map = objectMapper.readValue(new String(bytes), TypeFactory.defaultInstance().constructMapType(HashMap.class, String.class, Object.class));
+        return objectMapper.writeValueAsString(filterContent(map, BenchmarkSupport.HIDE_KEYWORDS, 2));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> filterContent(Map<String, Object> map, List<String> hideKeywords, int depth) {
+        if (depth <= 0 || map.isEmpty()) {
+            return map;
+        }
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (hideKeywords.contains(entry.getKey()) && entry.getValue() instanceof String) {
+                entry.setValue("xxxx");
+            } else if (entry.getValue() instanceof Map) {
+                filterContent((Map<String, Object>) entry.getValue(), hideKeywords, depth - 1);
+            } else if (entry.getValue() instanceof List) {
+                ((List<Object>) entry.getValue()).forEach(s -> Optional.of(s)
+                        .filter(Map.class::isInstance)
+                        .ifPresent(m -> filterContent((Map<String, Object>) m, hideKeywords, depth - 1)));
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.packetlogger.benchmark;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.filter.PacketDto;
+import com.example.packetlogger.filter.PacketEncoder;
+import com.example.packetlogger.filter.PacketSnapshot;
+import com.example.packetlogger.route.RouteTrie;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@State(Scope.Benchmark)
+public class PacketDtoBenchmark {
+
+    ObjectMapper objectMapper;
+    BaseProperties.PacketLogger options;
+    MockHttpServletRequest request;
+    MockHttpServletResponse response;
+    PacketDto.PatternMap patternMap;
+    PacketDto.Body requestBody;
+    PacketDto.Body responseBody;
+    PacketDto packetDto;
+    PacketEncoder packetEncoder;
+    PacketSnapshot snapshot;
+    Map<String, Object> responseHeaders;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        options = BenchmarkSupport.options(BenchmarkSupport.patterns(100));
+        request = new MockHttpServletRequest("POST", "/api/v1/resource4/42");
+        request.setServletPath("/api/v1/resource4/42");
+        request.setQueryString("page=1&size=20");
+        request.setContentType("application/json");
+        request.addHeader("user-agent", "Mozilla/5.0");
+        request.addHeader("x-forwarded-for", "203.0.113.10, 10.0.0.1");
+        request.addHeader("x-b3-traceid", "463ac35c9f6413ad48485a3953bb6124");
+        response = new MockHttpServletResponse();
+        response.setContentType("application/json");
+        patternMap = RouteTrie.of(options).match(request.getServletPath());
+
+        String body = BenchmarkSupport.body(1024);
+        requestBody = PacketDto.Body.builder().bytes(body.length()).content(body).build();
+        responseBody = PacketDto.Body.builder().bytes(body.length()).content(body).build();
+        packetDto = build();
+
+        packetEncoder = new PacketEncoder(objectMapper.getFactory(), options);
+        Map<String, Object> requestHeaders = new HashMap<>();
+        options.getSendHeaders().forEach(h -> requestHeaders.put(h, request.getHeader(h)));
+        responseHeaders = new HashMap<>();
+        options.getReceiveHeaders().forEach(h -> responseHeaders.put(h, response.getHeader(h)));
+        responseHeaders.put("content-type", response.getContentType());
+        responseHeaders.put("content-length", responseBody.getBytes());
+        snapshot = PacketSnapshot.builder()
+                .start(LocalDateTime.now())
+                .end(LocalDateTime.now())
+                .duration(1_000_000)
+                .method(request.getMethod())
+                .path(request.getServletPath())
+                .url(request.getRequestURL().toString())
+                .queryString(request.getQueryString())
+                .remoteAddr(request.getRemoteAddr())
+                .remotePort(request.getRemotePort())
+                .serverName(request.getServerName())
+                .forwardedFor(request.getHeader("x-forwarded-for"))
+                .userAgent(request.getHeader("user-agent"))
+                .transactionId(request.getHeader("x-b3-traceid"))
+                .requestHeaders(requestHeaders)
+                .responseHeaders(responseHeaders)
+                .responseContentType(response.getContentType())
+                .status(response.getStatus())
+                .patternMap(patternMap)
+                .build();
+    }
+
+    @Benchmark
+    public PacketDto construct() {
+        return build();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(packetDto);
+    }
+
+    @Benchmark
+    public byte[] constructAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(build());
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return packetEncoder.encode(snapshot, responseHeaders, requestBody, responseBody, "0000", "success");
+    }
+
+    private PacketDto build() {
+        return PacketDto.builder()
+                .serviceName(options.getServiceName())
+                .type("http")
+                .tag(options.getTag())
+                .query(request.getMethod() + " " + request.getServletPath())
+                .method(request.getMethod().toLowerCase())
+                .event(PacketDto.Event.builder()
+                        .start(LocalDateTime.now())
+                        .end(LocalDateTime.now())
+                        .build())
+                .network(PacketDto.Network.builder()
+                        .forwardedIp("203.0.113.10")
+                        .direction("ingress")
+                        .build())
+                .url(PacketDto.Url.builder(request).build())
+                .client(PacketDto.Client.builder(request).build())
+                .host(PacketDto.Host.builder()
+                        .name(request.getServerName())
+                        .build())
+                .userAgent(PacketDto.UserAgent.builder()
+                        .original(request.getHeader("user-agent"))
+                        .build())
+                .http(PacketDto.Http.builder(request, response, patternMap, requestBody, responseBody, "0000", "success", options)
+                        .build())
+                .status("OK")
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.packetlogger.benchmark;
+
+import com.example.packetlogger.filter.PacketDto;
+import com.example.packetlogger.route.RouteTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class RouteBenchmark {
+
+    @Param({"10", "100", "400"})
+    int patternCount;
+
+    List<String> patterns;
+    RouteTrie trie;
+    RouteTrie cachedTrie;
+    String hit;
+    String miss;
+
+    @Setup
+    public void setup() {
+        patterns = BenchmarkSupport.patterns(patternCount);
+        trie = new RouteTrie(patterns, 0);
+        cachedTrie = new RouteTrie(patterns, 1024);
+        hit = "/api/v1/resource" + (patternCount - 3) + "/42/items/7";
+        miss = "/api/v3/unknown/42";
+    }
+
+    @Benchmark
+    public PacketDto.UrlMap matchUrl() {
+        return PacketDto.matchUrl(hit, patterns.get(patternCount - 3));
+    }
+
+    @Benchmark
+    public PacketDto.PatternMap registerPatternHit() {
+        return PacketDto.registerPattern(hit, patterns);
+    }
+
+    @Benchmark
+    public PacketDto.PatternMap registerPatternMiss() {
+        return PacketDto.registerPattern(miss, patterns);
+    }
+
+    @Benchmark
+    public PacketDto.PatternMap trieHit() {
+        return trie.match(hit);
+    }
+
+    @Benchmark
+    public PacketDto.PatternMap trieMiss() {
+        return trie.match(miss);
+    }
+
+    @Benchmark
+    public PacketDto.PatternMap cachedTrieHit() {
+        return cachedTrie.match(hit);
+    }
+}
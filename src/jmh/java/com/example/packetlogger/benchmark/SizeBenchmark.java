@@ -0,0 +1,46 @@
+package com.example.packetlogger.benchmark;
+
+import com.example.packetlogger.util.WireSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code objectStreamSize} is the former PacketDto.getByteSize, kept as a reference.
+ */
+@State(Scope.Benchmark)
+public class SizeBenchmark {
+
+    Map<String, Object> headers;
+
+    @Setup
+    public void setup() {
+        headers = new HashMap<>();
+        headers.put("user-agent", "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36");
+        headers.put("x-forwarded-for", "203.0.113.10, 10.0.0.1");
+        headers.put("x-b3-traceid", "463ac35c9f6413ad48485a3953bb6124");
+        headers.put("content-type", "application/json;charset=UTF-8");
+        headers.put("content-length", 18342);
+    }
+
+    @Benchmark
+    public int wireSize() {
+        return WireSize.headers(headers);
+    }
+
+    @Benchmark
+    public int objectStreamSize() throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
+        objectOutputStream.writeObject(headers);
+        objectOutputStream.close();
+        return byteArrayOutputStream.size();
+    }
+}
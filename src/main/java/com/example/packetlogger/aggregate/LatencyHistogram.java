@@ -0,0 +1,87 @@
+package com.example.packetlogger.aggregate;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of nanosecond latencies in the spirit of HdrHistogram: every power of two is split into
+ * {@code 16} linear sub-buckets, which keeps the relative error under ~6% across the whole range.
+ * Buckets are striped by thread so a hot route does not serialize on the few buckets its latencies fall into.
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    static final int MAX_STRIPES = 8;
+
+    private final AtomicLongArray counts;
+    private final int stripeMask;
+
+    public LatencyHistogram() {
+        int stripes = Integer.highestOneBit(Math.min(Math.max(Runtime.getRuntime().availableProcessors(), 1), MAX_STRIPES));
+        this.counts = new AtomicLongArray(stripes * BUCKETS);
+        this.stripeMask = stripes - 1;
+    }
+
+    public void record(long nanos) {
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        counts.getAndIncrement(stripe * BUCKETS + index(Math.max(nanos, 0)));
+    }
+
+    /**
+     * Folds the stripes into one bucket array and resets them, so each call covers what was recorded since the last.
+     */
+    public long[] drain() {
+        long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < counts.length(); i++) {
+            if (counts.get(i) != 0) {
+                buckets[i % BUCKETS] += counts.getAndSet(i, 0);
+            }
+        }
+        return buckets;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Middle of the bucket, the value reported for everything recorded into it.
+     */
+    static long value(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        long lower = lowerBound(index);
+        long width = 1L << (index / SUB_BUCKETS - 1);
+        return lower + width / 2;
+    }
+
+    static long percentile(long[] buckets, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(quantile * total), 1);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return value(i);
+            }
+        }
+        return value(buckets.length - 1);
+    }
+}
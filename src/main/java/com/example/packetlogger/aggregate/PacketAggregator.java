@@ -0,0 +1,103 @@
+package com.example.packetlogger.aggregate;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.filter.PacketEncoder;
+import com.example.packetlogger.sink.PacketSink;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes listed under {@code packet-logger.aggregation.routes} are not logged request by request; their
+ * {@link RouteAggregate} is updated instead and one summary record per route is written every {@code interval}.
+ */
+public class PacketAggregator implements Closeable {
+
+    static final String THREAD_NAME = "packet-logger-aggregator";
+    static final Duration DEFAULT_INTERVAL = Duration.ofMinutes(1);
+
+    private final Map<String, RouteAggregate> routes;
+    private final PacketEncoder packetEncoder;
+    private final PacketSink packetSink;
+    private final ScheduledExecutorService scheduler;
+    private LocalDateTime intervalStart = LocalDateTime.now();
+    private long intervalStartNanos = System.nanoTime();
+
+    public PacketAggregator(Collection<String> patterns, Duration interval, PacketEncoder packetEncoder, PacketSink packetSink) {
+        Map<String, RouteAggregate> map = new LinkedHashMap<>();
+        patterns.forEach(p -> map.putIfAbsent(p, new RouteAggregate(p)));
+        this.routes = Collections.unmodifiableMap(map);
+        this.packetEncoder = packetEncoder;
+        this.packetSink = packetSink;
+
+        if (routes.isEmpty()) {
+            this.scheduler = null;
+        } else {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = interval.toNanos();
+            this.scheduler.scheduleAtFixedRate(this::emit, period, period, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public static PacketAggregator of(BaseProperties.PacketLogger options, PacketEncoder packetEncoder, PacketSink packetSink) {
+        Optional<BaseProperties.Aggregation> aggregation = Optional.ofNullable(options.getAggregation());
+        List<String> patterns = aggregation.map(BaseProperties.Aggregation::getRoutes).orElse(Collections.emptyList());
+        return new PacketAggregator(
+                patterns,
+                aggregation.map(BaseProperties.Aggregation::getInterval).orElse(DEFAULT_INTERVAL),
+                packetEncoder,
+                packetSink);
+    }
+
+    /**
+     * @return the aggregate for the route, or {@code null} when the route is logged request by request
+     */
+    public RouteAggregate route(String pattern) {
+        return (pattern != null) ? routes.get(pattern) : null;
+    }
+
+    public Map<String, RouteAggregate> getRoutes() {
+        return routes;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            emit();
+        }
+    }
+
+    synchronized void emit() {
+        LocalDateTime start = intervalStart;
+        LocalDateTime end = LocalDateTime.now();
+        long endNanos = System.nanoTime();
+        long duration = endNanos - intervalStartNanos;
+        intervalStart = end;
+        intervalStartNanos = endNanos;
+
+        for (RouteAggregate route : routes.values()) {
+            try {
+                RouteSummary summary = route.drain();
+                if (summary != null) {
+                    packetSink.write(packetEncoder.encodeSummary(summary, start, end, duration));
+                }
+            } catch (Exception e) {
+            }
+        }
+    }
+}
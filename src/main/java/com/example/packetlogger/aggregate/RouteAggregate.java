@@ -0,0 +1,86 @@
+package com.example.packetlogger.aggregate;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for one aggregated route. {@link #record} is a handful of striped increments and never allocates
+ * once every status code the route answers with has been seen.
+ */
+public class RouteAggregate {
+
+    @Getter
+    private final String pattern;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder durationSum = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final ConcurrentHashMap<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+
+    public RouteAggregate(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public void record(int status, long durationNanos, long requestBytes, long responseBytes) {
+        latency.record(durationNanos);
+        durationSum.add(durationNanos);
+        this.requestBytes.add(Math.max(requestBytes, 0));
+        this.responseBytes.add(Math.max(responseBytes, 0));
+        LongAdder counter = statusCodes.get(status);
+        if (counter == null) {
+            counter = statusCodes.computeIfAbsent(status, s -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Summary of everything recorded since the previous drain, or {@code null} when the route saw no requests.
+     * Requests racing with the drain land in either this interval or the next one, never in neither.
+     */
+    public RouteSummary drain() {
+        long[] buckets = latency.drain();
+        long count = 0;
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != 0) {
+                count += buckets[i];
+                first = (first < 0) ? i : first;
+                last = i;
+            }
+        }
+
+        Map<Integer, Long> statuses = new TreeMap<>();
+        statusCodes.forEach((status, counter) -> {
+            long n = counter.sumThenReset();
+            if (n != 0) {
+                statuses.put(status, n);
+            }
+        });
+        long durations = durationSum.sumThenReset();
+        long requests = requestBytes.sumThenReset();
+        long responses = responseBytes.sumThenReset();
+        if (count == 0) {
+            return null;
+        }
+
+        return RouteSummary.builder()
+                .pattern(pattern)
+                .count(count)
+                .requestBytes(requests)
+                .responseBytes(responses)
+                .statusCodes(statuses)
+                .min(LatencyHistogram.value(first))
+                .max(LatencyHistogram.value(last))
+                .mean(durations / count)
+                .p50(LatencyHistogram.percentile(buckets, count, 0.5))
+                .p90(LatencyHistogram.percentile(buckets, count, 0.9))
+                .p99(LatencyHistogram.percentile(buckets, count, 0.99))
+                .p999(LatencyHistogram.percentile(buckets, count, 0.999))
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.packetlogger.aggregate;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * What one route did during one interval. Latencies are in nanoseconds and carry the histogram's bucket precision.
+ */
+@Getter
+@Builder
+public class RouteSummary {
+    private final String pattern;
+    private final long count;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final Map<Integer, Long> statusCodes;
+    private final long min;
+    private final long max;
+    private final long mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+}
@@ -0,0 +1,15 @@
+package com.example.packetlogger.capture;
+
+import java.nio.charset.Charset;
+
+/**
+ * A body tapped on its way through, held up to a limit until the record either takes it or gives it back.
+ */
+public interface BodyCapture {
+
+    CapturedBody detach(Charset charset);
+
+    void release();
+
+    long getTotal();
+}
@@ -0,0 +1,129 @@
+package com.example.packetlogger.capture;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+public class BoundedRequestWrapper extends HttpServletRequestWrapper {
+
+    private final CaptureBuffer capture;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+
+    public BoundedRequestWrapper(HttpServletRequest request, CaptureRules rules) {
+        super(request);
+        this.capture = new CaptureBuffer(rules.getRequestLimit(), rules.isCaptured(request.getContentType()), rules.getBufferPool());
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            inputStream = new CapturingInputStream(getRequest().getInputStream());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), getCharset()));
+        }
+        return reader;
+    }
+
+    public CaptureBuffer getCapture() {
+        if (capture.getTotal() == 0 && capture.isEnabled() && isFormPost()) {
+            writeFormParameters();
+        }
+        return capture;
+    }
+
+    public Charset getCharset() {
+        String encoding = getCharacterEncoding();
+        return Charset.forName((encoding != null) ? encoding : WebUtils.DEFAULT_CHARACTER_ENCODING);
+    }
+
+    /**
+     * What the captured bytes are decoded with; an undeclared charset means UTF-8 here, not the servlet's ISO-8859-1.
+     */
+    public Charset getBodyCharset() {
+        return CaptureRules.charset(getContentType());
+    }
+
+    private boolean isFormPost() {
+        String contentType = getContentType();
+        return contentType != null && contentType.contains(MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+                && HttpMethod.POST.matches(getMethod());
+    }
+
+    private void writeFormParameters() {
+        Charset charset = getCharset();
+        StringBuilder form = new StringBuilder();
+        for (Map.Entry<String, String[]> entry : getParameterMap().entrySet()) {
+            for (String value : entry.getValue()) {
+                if (form.length() > 0) {
+                    form.append('&');
+                }
+                form.append(URLEncoder.encode(entry.getKey(), charset));
+                if (value != null) {
+                    form.append('=').append(URLEncoder.encode(value, charset));
+                }
+            }
+        }
+        byte[] bytes = form.toString().getBytes(charset);
+        capture.write(bytes, 0, bytes.length);
+    }
+
+    private class CapturingInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+
+        CapturingInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b != -1) {
+                capture.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = delegate.read(b, off, len);
+            if (count > 0) {
+                capture.write(b, off, count);
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.packetlogger.capture;
+
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+/**
+ * Writes go straight through to the client; only the first {@code responseLimit} bytes are kept for the log.
+ * Whether the body is captured at all is decided on the first write, once the content type is known.
+ */
+public class BoundedResponseWrapper extends HttpServletResponseWrapper {
+
+    private final CaptureRules rules;
+    private final CaptureBuffer capture;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private boolean decided;
+
+    public BoundedResponseWrapper(HttpServletResponse response, CaptureRules rules) {
+        this(response, rules, new CaptureBuffer(rules.getResponseLimit(), true, rules.getBufferPool()));
+    }
+
+    private BoundedResponseWrapper(HttpServletResponse response, CaptureRules rules, CaptureBuffer capture) {
+        super(response);
+        this.rules = rules;
+        this.capture = capture;
+    }
+
+    /**
+     * Keeps none of the body, only the count of bytes written, for routes that are only aggregated.
+     * Chunked and streamed responses have no {@code Content-Length} header to read the size from.
+     */
+    public static BoundedResponseWrapper counting(HttpServletResponse response) {
+        return new BoundedResponseWrapper(response, null, new CaptureBuffer(0, false));
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new CapturingOutputStream(getResponse().getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharset()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        finish();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        capture.reset();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        capture.reset();
+    }
+
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (outputStream != null) {
+            outputStream.flush();
+        }
+    }
+
+    public CaptureBuffer getCapture() {
+        return capture;
+    }
+
+    public Charset getCharset() {
+        String encoding = getCharacterEncoding();
+        return Charset.forName((encoding != null) ? encoding : WebUtils.DEFAULT_CHARACTER_ENCODING);
+    }
+
+    /**
+     * Text written through {@link #getWriter} is in the response encoding; raw stream writes, typically UTF-8 JSON,
+     * are only known by the charset the content type declares.
+     */
+    public Charset getBodyCharset() {
+        return (writer != null) ? getCharset() : CaptureRules.charset(getContentType());
+    }
+
+    private void decide() {
+        if (!decided) {
+            decided = true;
+            if (capture.isEnabled() && !rules.isCaptured(getContentType())) {
+                capture.disable();
+            }
+        }
+    }
+
+    private class CapturingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        CapturingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            decide();
+            delegate.write(b);
+            capture.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            decide();
+            delegate.write(b, off, len);
+            capture.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.packetlogger.capture;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.sink.RingBuffer;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Optional;
+
+/**
+ * Size-classed free lists of capture arrays, {@link #MIN_CLASS} bytes doubling up to the largest capture limit.
+ * {@code maxSize} bytes of idle arrays are split evenly across the classes; a class too large for its share is not pooled,
+ * and arrays released into a full class are left to the collector.
+ */
+public class BufferPool {
+
+    public static final BufferPool NONE = new BufferPool(0, 0);
+
+    static final int MIN_CLASS = 1024;
+    static final int MIN_CLASS_SHIFT = 10;
+    static final int MAX_CLASS = 1 << 30;
+    static final DataSize DEFAULT_MAX_SIZE = DataSize.ofMegabytes(16);
+
+    private final RingBuffer<byte[]>[] classes;
+
+    public BufferPool(int largest, long maxSize) {
+        int count = (largest > 0 && maxSize > 0) ? classIndex(Math.min(largest, MAX_CLASS)) + 1 : 0;
+        @SuppressWarnings("unchecked")
+        RingBuffer<byte[]>[] classes = (RingBuffer<byte[]>[]) new RingBuffer<?>[count];
+        this.classes = classes;
+        for (int i = 0; i < count; i++) {
+            long slots = maxSize / count / classSize(i);
+            if (slots > 0) {
+                classes[i] = new RingBuffer<>((int) Math.min(slots, 1 << 20));
+            }
+        }
+    }
+
+    public static BufferPool of(BaseProperties.PacketLogger options, int largest) {
+        Optional<BaseProperties.Pool> pool = Optional.ofNullable(options.getCapture()).map(BaseProperties.Capture::getPool);
+        if (!pool.map(BaseProperties.Pool::getEnabled).orElse(true)) {
+            return NONE;
+        }
+        return new BufferPool(
+                largest,
+                pool.map(BaseProperties.Pool::getMaxSize).orElse(DEFAULT_MAX_SIZE).toBytes());
+    }
+
+    /**
+     * An array of at least {@code capacity} bytes; its contents are whatever the previous holder left in it.
+     */
+    public byte[] acquire(int capacity) {
+        int index = classIndex(capacity);
+        if (index >= classes.length || classes[index] == null) {
+            return new byte[capacity];
+        }
+        byte[] buffer = classes[index].poll();
+        return (buffer != null) ? buffer : new byte[classSize(index)];
+    }
+
+    public void release(byte[] buffer) {
+        if (buffer == null || buffer.length < MIN_CLASS || Integer.bitCount(buffer.length) != 1) {
+            return;
+        }
+        int index = classIndex(buffer.length);
+        if (index < classes.length && classes[index] != null) {
+            classes[index].offer(buffer);
+        }
+    }
+
+    public long getIdleBytes() {
+        long idle = 0;
+        for (int i = 0; i < classes.length; i++) {
+            if (classes[i] != null) {
+                idle += (long) classes[i].size() * classSize(i);
+            }
+        }
+        return idle;
+    }
+
+    static int classIndex(int capacity) {
+        if (capacity <= MIN_CLASS) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_CLASS_SHIFT;
+    }
+
+    static int classSize(int index) {
+        return MIN_CLASS << index;
+    }
+}
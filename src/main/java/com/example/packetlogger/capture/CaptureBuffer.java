@@ -0,0 +1,113 @@
+package com.example.packetlogger.capture;
+
+import java.nio.charset.Charset;
+
+/**
+ * Keeps the first {@code limit} bytes of a body and counts the rest.
+ * The backing array is borrowed from a {@link BufferPool} and goes back either through {@link #release}
+ * or, once detached, through {@link CapturedBody#release}.
+ */
+public class CaptureBuffer implements BodyCapture {
+
+    static final int INITIAL_CAPACITY = 1024;
+    static final byte[] EMPTY = new byte[0];
+
+    private final int limit;
+    private final BufferPool bufferPool;
+    private boolean enabled;
+    private byte[] buffer;
+    private int count;
+    private long total;
+
+    public CaptureBuffer(int limit, boolean enabled) {
+        this(limit, enabled, BufferPool.NONE);
+    }
+
+    public CaptureBuffer(int limit, boolean enabled, BufferPool bufferPool) {
+        this.limit = Math.max(limit, 0);
+        this.enabled = enabled;
+        this.bufferPool = bufferPool;
+    }
+
+    public void write(int b) {
+        total++;
+        if (enabled && count < limit) {
+            ensureCapacity(count + 1);
+            buffer[count++] = (byte) b;
+        }
+    }
+
+    public void write(byte[] b, int off, int len) {
+        total += len;
+        if (enabled && count < limit) {
+            int copy = Math.min(len, limit - count);
+            ensureCapacity(count + copy);
+            System.arraycopy(b, off, buffer, count, copy);
+            count += copy;
+        }
+    }
+
+    /**
+     * Hands the captured bytes over and stops capturing, so a recycled wrapper can never touch them again.
+     */
+    @Override
+    public CapturedBody detach(Charset charset) {
+        CapturedBody body = new CapturedBody(getBuffer(), count, total, isTruncated(), charset, bufferPool);
+        enabled = false;
+        buffer = null;
+        count = 0;
+        return body;
+    }
+
+    /**
+     * Returns the array to the pool when the body is not going to be logged after all.
+     */
+    @Override
+    public void release() {
+        bufferPool.release(buffer);
+        enabled = false;
+        buffer = null;
+        count = 0;
+    }
+
+    public void reset() {
+        count = 0;
+        total = 0;
+    }
+
+    public void disable() {
+        enabled = false;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public byte[] getBuffer() {
+        return (buffer != null) ? buffer : EMPTY;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean isTruncated() {
+        return total > count;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (buffer == null) {
+            buffer = bufferPool.acquire(Math.min(Math.max(capacity, INITIAL_CAPACITY), limit));
+        } else if (capacity > buffer.length) {
+            byte[] grown = bufferPool.acquire(Math.min(Math.max(capacity, buffer.length * 2), limit));
+            System.arraycopy(buffer, 0, grown, 0, count);
+            bufferPool.release(buffer);
+            buffer = grown;
+        }
+    }
+}
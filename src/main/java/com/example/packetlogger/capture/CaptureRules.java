@@ -0,0 +1,130 @@
+package com.example.packetlogger.capture;
+
+import com.example.packetlogger.config.BaseProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Per direction capture limits and the content types whose bodies are never captured.
+ * A rule ending in {@code /*} matches the whole type, anything else must match the media type exactly.
+ */
+public class CaptureRules {
+
+    static final DataSize DEFAULT_REQUEST_LIMIT = DataSize.ofKilobytes(64);
+    static final DataSize DEFAULT_RESPONSE_LIMIT = DataSize.ofKilobytes(64);
+    static final List<String> DEFAULT_SKIP_CONTENT_TYPES = List.of(
+            "multipart/*",
+            "application/octet-stream",
+            "image/*",
+            "text/event-stream");
+    static final String WILDCARD = "*";
+    static final String CHARSET = "charset=";
+
+    private final int requestLimit;
+    private final int responseLimit;
+    private final String[] skipContentTypes;
+    private final BufferPool bufferPool;
+
+    public CaptureRules(int requestLimit, int responseLimit, List<String> skipContentTypes) {
+        this(requestLimit, responseLimit, skipContentTypes, BufferPool.NONE);
+    }
+
+    public CaptureRules(int requestLimit, int responseLimit, List<String> skipContentTypes, BufferPool bufferPool) {
+        this.requestLimit = requestLimit;
+        this.responseLimit = responseLimit;
+        this.bufferPool = bufferPool;
+        this.skipContentTypes = skipContentTypes.stream()
+                .map(t -> t.trim().toLowerCase(Locale.ROOT))
+                .map(t -> t.endsWith(WILDCARD) ? t.substring(0, t.length() - 1) : t)
+                .toArray(String[]::new);
+    }
+
+    public static CaptureRules of(BaseProperties.PacketLogger options) {
+        Optional<BaseProperties.Capture> capture = Optional.ofNullable(options.getCapture());
+        int requestLimit = toBytes(capture.map(BaseProperties.Capture::getRequestLimit).orElse(DEFAULT_REQUEST_LIMIT));
+        int responseLimit = toBytes(capture.map(BaseProperties.Capture::getResponseLimit).orElse(DEFAULT_RESPONSE_LIMIT));
+        return new CaptureRules(
+                requestLimit,
+                responseLimit,
+                capture.map(BaseProperties.Capture::getSkipContentTypes).orElse(DEFAULT_SKIP_CONTENT_TYPES),
+                BufferPool.of(options, Math.max(requestLimit, responseLimit)));
+    }
+
+    /**
+     * The {@code charset} parameter of a content type, or UTF-8 when it is missing or unknown.
+     * Unlike the servlet default this never falls back to ISO-8859-1, which would garble undeclared UTF-8 bodies.
+     */
+    public static Charset charset(String contentType) {
+        if (contentType == null) {
+            return StandardCharsets.UTF_8;
+        }
+        int start = indexOfIgnoreCase(contentType, CHARSET);
+        if (start < 0) {
+            return StandardCharsets.UTF_8;
+        }
+        start += CHARSET.length();
+        int end = contentType.indexOf(';', start);
+        String name = contentType.substring(start, (end < 0) ? contentType.length() : end).trim();
+        if (name.length() > 1 && name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"') {
+            name = name.substring(1, name.length() - 1);
+        }
+        try {
+            return Charset.forName(name);
+        } catch (Exception e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    public int getRequestLimit() {
+        return requestLimit;
+    }
+
+    public int getResponseLimit() {
+        return responseLimit;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public boolean isCaptured(String contentType) {
+        if (contentType == null) {
+            return true;
+        }
+        int end = contentType.indexOf(';');
+        if (end < 0) {
+            end = contentType.length();
+        }
+        while (end > 0 && contentType.charAt(end - 1) == ' ') {
+            end--;
+        }
+
+        for (String skip : skipContentTypes) {
+            boolean matched = skip.endsWith("/")
+                    ? end >= skip.length() && contentType.regionMatches(true, 0, skip, 0, skip.length())
+                    : end == skip.length() && contentType.regionMatches(true, 0, skip, 0, end);
+            if (matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOfIgnoreCase(String value, String part) {
+        for (int i = 0, last = value.length() - part.length(); i <= last; i++) {
+            if (value.regionMatches(true, i, part, 0, part.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int toBytes(DataSize size) {
+        return (int) Math.min(size.toBytes(), Integer.MAX_VALUE);
+    }
+}
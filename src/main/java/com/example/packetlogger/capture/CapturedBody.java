@@ -0,0 +1,34 @@
+package com.example.packetlogger.capture;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Body bytes handed over from a capture; the array belongs to whoever holds this object until {@link #release}
+ * gives it back to the pool it came from. Only the first release does, so the array never sits in the pool twice.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CapturedBody {
+    private final byte[] content;
+    private final int length;
+    private final long total;
+    private final boolean truncated;
+    private final Charset charset;
+    @Getter(AccessLevel.NONE)
+    private final BufferPool bufferPool;
+    @Getter(AccessLevel.NONE)
+    private volatile int released;
+
+    private static final AtomicIntegerFieldUpdater<CapturedBody> RELEASED = AtomicIntegerFieldUpdater.newUpdater(CapturedBody.class, "released");
+
+    public void release() {
+        if (RELEASED.compareAndSet(this, 0, 1)) {
+            bufferPool.release(content);
+        }
+    }
+}
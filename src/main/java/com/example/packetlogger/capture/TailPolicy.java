@@ -0,0 +1,64 @@
+package com.example.packetlogger.capture;
+
+import com.example.packetlogger.config.BaseProperties;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Tail-based capture: bodies are buffered while the request runs but only kept when the outcome is interesting,
+ * a non-2xx status, a request slower than {@code slowThreshold}, or one of {@code codes} in the response envelope.
+ * Everything else is logged with sizes only and its bodies are never parsed.
+ */
+public class TailPolicy {
+
+    public static final TailPolicy DISABLED = new TailPolicy(false, 0, Collections.emptySet());
+
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final Set<String> codes;
+
+    public TailPolicy(boolean enabled, long slowThresholdNanos, Collection<String> codes) {
+        this.enabled = enabled;
+        this.slowThresholdNanos = slowThresholdNanos;
+        this.codes = Set.copyOf(codes);
+    }
+
+    public static TailPolicy of(BaseProperties.PacketLogger options) {
+        Optional<BaseProperties.Tail> tail = Optional.ofNullable(options.getCapture()).map(BaseProperties.Capture::getTail);
+        if (!tail.map(BaseProperties.Tail::isEnabled).orElse(false)) {
+            return DISABLED;
+        }
+        return new TailPolicy(
+                true,
+                tail.map(BaseProperties.Tail::getSlowThreshold).map(Duration::toNanos).orElse(0L),
+                tail.map(BaseProperties.Tail::getCodes).orElse(Collections.emptyList()));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Decided on the request thread as soon as status and duration are known.
+     */
+    public boolean keeps(int status, long durationNanos) {
+        return !enabled
+                || status < 200 || status >= 300
+                || (slowThresholdNanos > 0 && durationNanos >= slowThresholdNanos);
+    }
+
+    /**
+     * Whether a request {@link #keeps} rejected still has to wait for its response {@code code}.
+     */
+    public boolean hasCodes() {
+        return !codes.isEmpty();
+    }
+
+    public boolean keepsCode(String code) {
+        return code != null && codes.contains(code);
+    }
+}
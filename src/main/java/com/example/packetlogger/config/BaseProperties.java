@@ -1,11 +1,20 @@
 package com.example.packetlogger.config;
 
+import com.example.packetlogger.format.Compression;
+import com.example.packetlogger.format.RecordFormat;
+import com.example.packetlogger.sink.FsyncPolicy;
+import com.example.packetlogger.sink.OverflowPolicy;
+import com.example.packetlogger.sink.SinkType;
+import com.example.packetlogger.worker.WorkerType;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 public class BaseProperties {
 
@@ -23,6 +32,143 @@ public class BaseProperties {
         private final List<String> registerPattern;
         private final List<String> dropEvent;
         private final String tag;
+        private final Sink sink;
+        private final Route route;
+        private final Capture capture;
+        private final Sampling sampling;
+        private final Reactive reactive;
+        private final Worker worker;
+        private final RecordFormat format;
+        private final Aggregation aggregation;
+        private final Dedup dedup;
     }
 
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class Sink {
+        private final Integer queueCapacity;
+        private final Integer batchSize;
+        private final Duration flushInterval;
+        private final OverflowPolicy overflowPolicy;
+        private final SinkType type;
+        private final SinkFile file;
+        private final Compression compression;
+        private final SinkHttp http;
+    }
+
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class SinkHttp {
+        private final String url;
+        private final Duration connectTimeout;
+        private final Duration requestTimeout;
+        private final Map<String, String> headers;
+        private final Duration initialBackoff;
+        private final Duration maxBackoff;
+        private final String spillDirectory;
+        private final DataSize spillLimit;
+    }
+
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class SinkFile {
+        private final String directory;
+        private final String prefix;
+        private final DataSize segmentSize;
+        private final Duration rotateInterval;
+        private final FsyncPolicy fsync;
+        private final Integer maxSegments;
+        private final Duration maxAge;
+    }
+
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class Route {
+        private final Integer cacheSize;
+    }
+
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class Capture {
+        private final DataSize requestLimit;
+        private final DataSize responseLimit;
+        private final List<String> skipContentTypes;
+        private final Tail tail;
+        private final Pool pool;
+    }
+
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class Pool {
+        private final Boolean enabled;
+        private final DataSize maxSize;
+    }
+
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class Tail {
+        private final boolean enabled;
+        private final Duration slowThreshold;
+        private final List<String> codes;
+    }
+
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class Sampling {
+        private final List<SamplingRule> rules;
+    }
+
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class SamplingRule {
+        private final String pattern;
+        private final Double ratio;
+        private final Integer maxPerSecond;
+        private final boolean keepErrors;
+        private final Duration slowThreshold;
+    }
+
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class Reactive {
+        private final Integer threads;
+        private final Integer queueCapacity;
+    }
+
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class Worker {
+        private final WorkerType type;
+        private final Integer threads;
+        private final Integer queueCapacity;
+    }
+
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class Aggregation {
+        private final List<String> routes;
+        private final Duration interval;
+    }
+
+    @Getter
+    @ConstructorBinding
+    @RequiredArgsConstructor
+    public static class Dedup {
+        private final boolean enabled;
+        private final Integer maxEntries;
+        private final Duration window;
+        private final DataSize minSize;
+    }
 }
@@ -1,8 +1,218 @@
 package com.example.packetlogger.config;
 
+import com.example.packetlogger.aggregate.PacketAggregator;
+import com.example.packetlogger.capture.CaptureRules;
+import com.example.packetlogger.capture.TailPolicy;
+import com.example.packetlogger.filter.PacketAssembler;
+import com.example.packetlogger.filter.PacketEncoder;
+import com.example.packetlogger.format.RecordFormats;
+import com.example.packetlogger.dedup.BodyCache;
+import com.example.packetlogger.egress.EgressExchangeFilter;
+import com.example.packetlogger.egress.EgressLoggingInterceptor;
+import com.example.packetlogger.egress.EgressRecorder;
+import com.example.packetlogger.mask.JsonMasker;
+import com.example.packetlogger.mask.KeywordMasker;
+import com.example.packetlogger.metrics.MicrometerPacketMetrics;
+import com.example.packetlogger.metrics.PacketMetrics;
+import com.example.packetlogger.plan.PacketPlan;
+import com.example.packetlogger.plan.PacketPlanHolder;
+import com.example.packetlogger.plan.PacketPlanRefresher;
+import com.example.packetlogger.reactive.ReactiveLoggerFilter;
+import com.example.packetlogger.route.RouteTrie;
+import com.example.packetlogger.sampling.PacketSampler;
+import com.example.packetlogger.sink.AsyncPacketSink;
+import com.example.packetlogger.sink.PacketSink;
+import com.example.packetlogger.worker.PacketDispatcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.server.WebFilter;
 
 @Configuration
+@ConditionalOnProperty(prefix = "packet-logger", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(BaseProperties.PacketLogger.class)
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 public class PacketLoggerAutoConfiguration {
 
+    @Bean
+    @ConditionalOnMissingBean
+    public PacketSink packetSink(BaseProperties.PacketLogger options) {
+        return AsyncPacketSink.of(options);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JsonMasker jsonMasker(ObjectMapper objectMapper, BaseProperties.PacketLogger options) {
+        return new JsonMasker(objectMapper.getFactory(), options.getHideKeywords());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public KeywordMasker keywordMasker(BaseProperties.PacketLogger options) {
+        return new KeywordMasker(options.getHideKeywords());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BodyCache bodyCache(BaseProperties.PacketLogger options) {
+        return BodyCache.of(options);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RouteTrie routeTrie(BaseProperties.PacketLogger options) {
+        return RouteTrie.of(options);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CaptureRules captureRules(BaseProperties.PacketLogger options) {
+        return CaptureRules.of(options);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TailPolicy tailPolicy(BaseProperties.PacketLogger options) {
+        return TailPolicy.of(options);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PacketSampler packetSampler(BaseProperties.PacketLogger options) {
+        return PacketSampler.of(options);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PacketMetrics packetMetrics() {
+        return PacketMetrics.NOOP;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PacketEncoder packetEncoder(ObjectMapper objectMapper, BaseProperties.PacketLogger options) {
+        return new PacketEncoder(RecordFormats.factory(options.getFormat(), objectMapper.getFactory()), options);
+    }
+
+    /**
+     * The first plan is built from the beans above, so overriding one still takes effect; a reload recompiles them from properties.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public PacketPlanHolder packetPlanHolder(ObjectMapper objectMapper, BaseProperties.PacketLogger options, RouteTrie routeTrie, CaptureRules captureRules, TailPolicy tailPolicy, JsonMasker jsonMasker, KeywordMasker keywordMasker, PacketEncoder packetEncoder) {
+        return new PacketPlanHolder(
+                new PacketPlan(options, routeTrie, captureRules, tailPolicy, jsonMasker, keywordMasker, packetEncoder),
+                objectMapper.getFactory(),
+                RecordFormats.factory(options.getFormat(), objectMapper.getFactory()));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PacketAssembler packetAssembler(PacketPlanHolder packetPlanHolder, PacketSink packetSink, PacketMetrics packetMetrics, BodyCache bodyCache) {
+        return new PacketAssembler(packetPlanHolder, packetSink, packetMetrics, bodyCache);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PacketAggregator packetAggregator(BaseProperties.PacketLogger options, PacketEncoder packetEncoder, PacketSink packetSink) {
+        return PacketAggregator.of(options, packetEncoder, packetSink);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PacketDispatcher packetDispatcher(BaseProperties.PacketLogger options, PacketAssembler packetAssembler, PacketMetrics packetMetrics) {
+        return PacketDispatcher.of(options, packetAssembler, packetMetrics);
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.cloud.context.environment.EnvironmentChangeEvent")
+    static class RefreshConfiguration {
+
+        @Bean
+        public PacketPlanRefresher packetPlanRefresher(Environment environment, PacketPlanHolder packetPlanHolder) {
+            return new PacketPlanRefresher(environment, packetPlanHolder);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnProperty(prefix = "packet-logger.metrics", name = "enabled", havingValue = "true")
+    static class MicrometerConfiguration {
+
+        @Bean
+        @ConditionalOnBean(MeterRegistry.class)
+        public PacketMetrics micrometerPacketMetrics(MeterRegistry meterRegistry, PacketSink packetSink, PacketSampler packetSampler, BodyCache bodyCache) {
+            return new MicrometerPacketMetrics(meterRegistry, packetSink, packetSampler, bodyCache);
+        }
+    }
+
+    /**
+     * Only RestTemplates and WebClients built from the auto-configured builders are recorded.
+     */
+    @Configuration
+    @ConditionalOnProperty(prefix = "packet-logger.egress", name = "enabled", havingValue = "true")
+    static class EgressConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public EgressRecorder egressRecorder(PacketPlanHolder packetPlanHolder, PacketDispatcher packetDispatcher) {
+            return new EgressRecorder(packetPlanHolder, packetDispatcher);
+        }
+
+        @Configuration
+        @ConditionalOnClass(name = "org.springframework.web.client.RestTemplate")
+        static class RestTemplateConfiguration {
+
+            @Bean
+            @ConditionalOnMissingBean
+            public EgressLoggingInterceptor egressLoggingInterceptor(EgressRecorder egressRecorder) {
+                return new EgressLoggingInterceptor(egressRecorder);
+            }
+
+            @Bean
+            public RestTemplateCustomizer egressRestTemplateCustomizer(EgressLoggingInterceptor egressLoggingInterceptor) {
+                return restTemplate -> restTemplate.getInterceptors().add(egressLoggingInterceptor);
+            }
+        }
+
+        @Configuration
+        @ConditionalOnClass(name = "org.springframework.web.reactive.function.client.WebClient")
+        static class WebClientConfiguration {
+
+            @Bean
+            @ConditionalOnMissingBean
+            public EgressExchangeFilter egressExchangeFilter(EgressRecorder egressRecorder) {
+                return new EgressExchangeFilter(egressRecorder);
+            }
+
+            @Bean
+            public WebClientCustomizer egressWebClientCustomizer(EgressExchangeFilter egressExchangeFilter) {
+                return builder -> builder.filter(egressExchangeFilter);
+            }
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(WebFilter.class)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    static class ReactiveConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public ReactiveLoggerFilter reactiveLoggerFilter(BaseProperties.PacketLogger options, PacketPlanHolder packetPlanHolder, PacketSampler packetSampler, PacketAssembler packetAssembler, PacketAggregator packetAggregator, PacketMetrics packetMetrics) {
+            return new ReactiveLoggerFilter(packetPlanHolder, packetSampler, packetAssembler, packetAggregator, packetMetrics, ReactiveLoggerFilter.scheduler(options));
+        }
+    }
+
 }
@@ -0,0 +1,120 @@
+package com.example.packetlogger.dedup;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.mask.MaskedContent;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fingerprints of recently logged response bodies. A body seen again within {@code window} is logged by its hash
+ * and size only; once the window has passed it is logged in full again, so every window keeps one complete copy.
+ * The least recently seen fingerprints are evicted beyond {@code maxEntries}.
+ */
+public class BodyCache {
+
+    public static final BodyCache DISABLED = new BodyCache(false, 0, 0, Integer.MAX_VALUE);
+
+    static final int DEFAULT_MAX_ENTRIES = 10_000;
+    static final Duration DEFAULT_WINDOW = Duration.ofMinutes(1);
+    static final DataSize DEFAULT_MIN_SIZE = DataSize.ofBytes(256);
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int minSize;
+    private final Map<Long, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public BodyCache(boolean enabled, int maxEntries, long windowNanos, int minSize) {
+        this.enabled = enabled;
+        this.windowNanos = windowNanos;
+        this.minSize = minSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public static BodyCache of(BaseProperties.PacketLogger options) {
+        Optional<BaseProperties.Dedup> dedup = Optional.ofNullable(options.getDedup());
+        if (!dedup.map(BaseProperties.Dedup::isEnabled).orElse(false)) {
+            return DISABLED;
+        }
+        return new BodyCache(
+                true,
+                Math.max(dedup.map(BaseProperties.Dedup::getMaxEntries).orElse(DEFAULT_MAX_ENTRIES), 1),
+                dedup.map(BaseProperties.Dedup::getWindow).orElse(DEFAULT_WINDOW).toNanos(),
+                (int) Math.min(dedup.map(BaseProperties.Dedup::getMinSize).orElse(DEFAULT_MIN_SIZE).toBytes(), Integer.MAX_VALUE));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Truncated bodies are never deduplicated; equal prefixes say nothing about the rest.
+     */
+    public boolean accepts(int length, boolean truncated) {
+        return enabled && !truncated && length >= minSize;
+    }
+
+    /**
+     * @return the {@code code} and {@code message} picked up when the body was last logged in full,
+     * or {@code null} when it has to be logged in full now
+     */
+    public MaskedContent get(long hash) {
+        long now = System.nanoTime();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(hash);
+            if (entry != null && now - entry.loggedAt > windowNanos) {
+                entries.remove(hash);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.masked;
+    }
+
+    public void put(long hash, MaskedContent masked) {
+        Entry entry = new Entry(System.nanoTime(), new MaskedContent(null, masked.getCode(), masked.getMessage()));
+        synchronized (entries) {
+            entries.put(hash, entry);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static class Entry {
+        private final long loggedAt;
+        private final MaskedContent masked;
+
+        Entry(long loggedAt, MaskedContent masked) {
+            this.loggedAt = loggedAt;
+            this.masked = masked;
+        }
+    }
+}
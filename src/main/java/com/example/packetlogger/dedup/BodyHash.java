@@ -0,0 +1,95 @@
+package com.example.packetlogger.dedup;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * XXH64 over a byte range. Not cryptographic; only used to recognise bodies that were already logged.
+ */
+public final class BodyHash {
+
+    static final long PRIME1 = 0x9E3779B185EBCA87L;
+    static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    static final long PRIME3 = 0x165667B19E3779F9L;
+    static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private BodyHash() {
+    }
+
+    public static long hash(byte[] content, int length, long seed) {
+        int position = 0;
+        long hash;
+        if (length >= 32) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            int limit = length - 32;
+            do {
+                v1 = round(v1, (long) LONGS.get(content, position));
+                v2 = round(v2, (long) LONGS.get(content, position + 8));
+                v3 = round(v3, (long) LONGS.get(content, position + 16));
+                v4 = round(v4, (long) LONGS.get(content, position + 24));
+                position += 32;
+            } while (position <= limit);
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+
+        hash += length;
+        for (; position + 8 <= length; position += 8) {
+            hash ^= round(0, (long) LONGS.get(content, position));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (position + 4 <= length) {
+            hash ^= ((int) INTS.get(content, position) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            position += 4;
+        }
+        for (; position < length; position++) {
+            hash ^= (content[position] & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    /**
+     * Fixed width, so equal hashes always print the same.
+     */
+    public static String toHex(long hash) {
+        char[] chars = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            chars[i] = HEX[(int) hash & 0xF];
+            hash >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME1;
+    }
+
+    private static long merge(long hash, long v) {
+        hash ^= round(0, v);
+        return hash * PRIME1 + PRIME4;
+    }
+}
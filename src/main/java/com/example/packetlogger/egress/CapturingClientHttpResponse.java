@@ -0,0 +1,97 @@
+package com.example.packetlogger.egress;
+
+import com.example.packetlogger.capture.CaptureBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Tees the body into a {@link CaptureBuffer} as it is read, and runs {@code onClose} before the connection is given back.
+ */
+class CapturingClientHttpResponse implements ClientHttpResponse {
+
+    private final ClientHttpResponse delegate;
+    private final CaptureBuffer capture;
+    private final Runnable onClose;
+    private InputStream body;
+
+    CapturingClientHttpResponse(ClientHttpResponse delegate, CaptureBuffer capture, Runnable onClose) {
+        this.delegate = delegate;
+        this.capture = capture;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public HttpStatus getStatusCode() throws IOException {
+        return delegate.getStatusCode();
+    }
+
+    @Override
+    public int getRawStatusCode() throws IOException {
+        return delegate.getRawStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+        return delegate.getStatusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return delegate.getHeaders();
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+        if (body == null) {
+            body = new CapturingInputStream(delegate.getBody(), capture);
+        }
+        return body;
+    }
+
+    @Override
+    public void close() {
+        try {
+            onClose.run();
+        } finally {
+            delegate.close();
+        }
+    }
+
+    static class CapturingInputStream extends FilterInputStream {
+
+        private final CaptureBuffer capture;
+
+        CapturingInputStream(InputStream in, CaptureBuffer capture) {
+            super(in);
+            this.capture = capture;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                capture.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                capture.write(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
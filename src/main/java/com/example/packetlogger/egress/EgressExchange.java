@@ -0,0 +1,108 @@
+package com.example.packetlogger.egress;
+
+import com.example.packetlogger.capture.CaptureBuffer;
+import com.example.packetlogger.capture.CaptureRules;
+import com.example.packetlogger.filter.PacketSnapshot;
+import com.example.packetlogger.plan.PacketPlan;
+import com.example.packetlogger.reactive.DataBufferCapture;
+import com.example.packetlogger.worker.PacketDispatcher;
+import org.springframework.http.HttpHeaders;
+
+import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One outgoing call in flight. Its record is emitted once, by whichever of completion or failure comes first;
+ * a later call only releases the captures it is given.
+ */
+public class EgressExchange {
+
+    static final int NO_RESPONSE = 0;
+
+    private final PacketPlan plan;
+    private final PacketDispatcher packetDispatcher;
+    private final PacketSnapshot.PacketSnapshotBuilder snapshot;
+    private final String traceId;
+    private final Charset requestCharset;
+    private final long startNanos;
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    EgressExchange(PacketPlan plan, PacketDispatcher packetDispatcher, PacketSnapshot.PacketSnapshotBuilder snapshot, String traceId, Charset requestCharset, long startNanos) {
+        this.plan = plan;
+        this.packetDispatcher = packetDispatcher;
+        this.snapshot = snapshot;
+        this.traceId = traceId;
+        this.requestCharset = requestCharset;
+        this.startNanos = startNanos;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public CaptureRules getCaptureRules() {
+        return plan.getCaptureRules();
+    }
+
+    public void complete(int status, HttpHeaders responseHeaders, CaptureBuffer requestCapture, CaptureBuffer responseCapture) {
+        if (!completed.compareAndSet(false, true)) {
+            requestCapture.release();
+            responseCapture.release();
+            return;
+        }
+        try {
+            PacketSnapshot.PacketSnapshotBuilder snapshot = finish(status, responseHeaders);
+            if (snapshot.keepsBodies(plan.getTailPolicy(), requestCapture, responseCapture)) {
+                snapshot.detach(requestCapture, requestCharset, responseCapture, responseCharset(responseHeaders));
+            }
+            packetDispatcher.dispatch(snapshot.build());
+        } catch (Exception e) {
+        }
+    }
+
+    /**
+     * The slices are only read on the worker, as for incoming WebFlux requests.
+     */
+    public void complete(int status, HttpHeaders responseHeaders, DataBufferCapture requestCapture, DataBufferCapture responseCapture) {
+        Runnable release = () -> {
+            requestCapture.release();
+            responseCapture.release();
+        };
+        if (!completed.compareAndSet(false, true)) {
+            release.run();
+            return;
+        }
+        try {
+            PacketSnapshot.PacketSnapshotBuilder snapshot = finish(status, responseHeaders);
+            if (snapshot.keepsBodies(plan.getTailPolicy(), requestCapture, responseCapture)) {
+                Charset responseCharset = responseCharset(responseHeaders);
+                packetDispatcher.dispatch(() -> snapshot.detach(requestCapture, requestCharset, responseCapture, responseCharset).build(), release);
+            } else {
+                packetDispatcher.dispatch(snapshot.build());
+            }
+        } catch (Exception e) {
+            release.run();
+        }
+    }
+
+    private PacketSnapshot.PacketSnapshotBuilder finish(int status, HttpHeaders responseHeaders) {
+        Map<String, Object> receiveHeaders = new HashMap<>();
+        for (String header : plan.getReceiveHeaders()) {
+            receiveHeaders.put(header, responseHeaders.getFirst(header));
+        }
+        return snapshot
+                .end(LocalDateTime.now())
+                .duration(System.nanoTime() - startNanos)
+                .responseContentLength(Math.max(responseHeaders.getContentLength(), 0))
+                .responseHeaders(receiveHeaders)
+                .responseContentType(responseHeaders.getFirst(HttpHeaders.CONTENT_TYPE))
+                .status(status);
+    }
+
+    private static Charset responseCharset(HttpHeaders responseHeaders) {
+        return CaptureRules.charset(responseHeaders.getFirst(HttpHeaders.CONTENT_TYPE));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.packetlogger.egress;
+
+import com.example.packetlogger.capture.CaptureRules;
+import com.example.packetlogger.reactive.DataBufferCapture;
+import lombok.RequiredArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records WebClient calls. Both bodies are tapped with {@link DataBufferCapture} like incoming WebFlux requests,
+ * and the record is emitted once the response body has been consumed or released.
+ * The trace id is taken from the reactor context written by {@link com.example.packetlogger.reactive.ReactiveLoggerFilter}.
+ */
+@RequiredArgsConstructor
+public class EgressExchangeFilter implements ExchangeFilterFunction {
+
+    private final EgressRecorder egressRecorder;
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(context -> {
+            HttpHeaders headers = request.headers();
+            EgressExchange exchange = egressRecorder.start(request.method().name(), request.url(), headers,
+                    context.getOrDefault(EgressRecorder.TRACE_ID_ATTRIBUTE, null),
+                    Math.max(headers.getContentLength(), 0));
+            if (exchange == null) {
+                return next.exchange(request);
+            }
+
+            CaptureRules captureRules = exchange.getCaptureRules();
+            DataBufferCapture requestCapture = new DataBufferCapture(captureRules.getRequestLimit(), captureRules.isCaptured(headers.getFirst(HttpHeaders.CONTENT_TYPE)), captureRules.getBufferPool());
+            ClientRequest traced = ClientRequest.from(request)
+                    .headers(h -> h.set(EgressRecorder.B3_TRACE_ID, exchange.getTraceId()))
+                    .body((message, inserterContext) -> request.body().insert(capturingRequest(message, requestCapture), inserterContext))
+                    .build();
+
+            return next.exchange(traced)
+                    .map(response -> {
+                        HttpHeaders responseHeaders = response.headers().asHttpHeaders();
+                        DataBufferCapture responseCapture = new DataBufferCapture(captureRules.getResponseLimit(), captureRules.isCaptured(responseHeaders.getFirst(HttpHeaders.CONTENT_TYPE)), captureRules.getBufferPool());
+                        return response.mutate()
+                                .body(body -> body
+                                        .doOnNext(responseCapture::capture)
+                                        .doFinally(signal -> exchange.complete(response.rawStatusCode(), responseHeaders, requestCapture, responseCapture)))
+                                .build();
+                    })
+                    .doOnError(e -> exchange.complete(EgressExchange.NO_RESPONSE, HttpHeaders.EMPTY, requestCapture, new DataBufferCapture(0, false)))
+                    .doOnCancel(() -> exchange.complete(EgressExchange.NO_RESPONSE, HttpHeaders.EMPTY, requestCapture, new DataBufferCapture(0, false)));
+        });
+    }
+
+    private ClientHttpRequest capturingRequest(ClientHttpRequest request, DataBufferCapture capture) {
+        return new ClientHttpRequestDecorator(request) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                return super.writeWith(Flux.<DataBuffer>from(body).doOnNext(capture::capture));
+            }
+
+            @Override
+            public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                return super.writeAndFlushWith(Flux.<Publisher<? extends DataBuffer>>from(body)
+                        .map(p -> Flux.<DataBuffer>from(p).doOnNext(capture::capture)));
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.packetlogger.egress;
+
+import com.example.packetlogger.capture.CaptureBuffer;
+import com.example.packetlogger.capture.CaptureRules;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * Records RestTemplate calls. The request body is already in memory, so only its first bytes are copied;
+ * the response body is captured as the caller reads it, and the record is emitted when the response is closed.
+ */
+@RequiredArgsConstructor
+public class EgressLoggingInterceptor implements ClientHttpRequestInterceptor {
+
+    private final EgressRecorder egressRecorder;
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        HttpHeaders headers = request.getHeaders();
+        EgressExchange exchange = egressRecorder.start(request.getMethodValue(), request.getURI(), headers, null, body.length);
+        if (exchange == null) {
+            return execution.execute(request, body);
+        }
+        headers.set(EgressRecorder.B3_TRACE_ID, exchange.getTraceId());
+
+        CaptureRules captureRules = exchange.getCaptureRules();
+        CaptureBuffer requestCapture = new CaptureBuffer(captureRules.getRequestLimit(), captureRules.isCaptured(headers.getFirst(HttpHeaders.CONTENT_TYPE)), captureRules.getBufferPool());
+        requestCapture.write(body, 0, body.length);
+
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            exchange.complete(EgressExchange.NO_RESPONSE, HttpHeaders.EMPTY, requestCapture, new CaptureBuffer(0, false));
+            throw e;
+        }
+
+        int status = status(response);
+        HttpHeaders responseHeaders = response.getHeaders();
+        CaptureBuffer responseCapture = new CaptureBuffer(captureRules.getResponseLimit(), captureRules.isCaptured(responseHeaders.getFirst(HttpHeaders.CONTENT_TYPE)), captureRules.getBufferPool());
+        return new CapturingClientHttpResponse(response, responseCapture,
+                () -> exchange.complete(status, responseHeaders, requestCapture, responseCapture));
+    }
+
+    private int status(ClientHttpResponse response) {
+        try {
+            return response.getRawStatusCode();
+        } catch (IOException e) {
+            return EgressExchange.NO_RESPONSE;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.packetlogger.egress;
+
+import com.example.packetlogger.capture.CaptureRules;
+import com.example.packetlogger.filter.Direction;
+import com.example.packetlogger.filter.PacketDto;
+import com.example.packetlogger.filter.PacketSnapshot;
+import com.example.packetlogger.plan.PacketPlan;
+import com.example.packetlogger.plan.PacketPlanHolder;
+import com.example.packetlogger.worker.PacketDispatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Starts the record of an outgoing call for the RestTemplate and WebClient hooks; both then finish it through {@link EgressExchange},
+ * which shares the capture limits, tail policy, masking and dispatcher of incoming requests.
+ * Calls are never matched against {@code registerPattern}, but {@code dropEvent} applies to their path.
+ */
+@RequiredArgsConstructor
+public class EgressRecorder {
+
+    public static final String B3_TRACE_ID = "x-b3-traceid";
+    /**
+     * Request attribute, or reactor context key, holding the trace id of the request being served.
+     */
+    public static final String TRACE_ID_ATTRIBUTE = EgressRecorder.class.getName() + ".traceId";
+
+    private final PacketPlanHolder packetPlans;
+    private final PacketDispatcher packetDispatcher;
+
+    /**
+     * {@code null} when the call is dropped.
+     */
+    public EgressExchange start(String method, URI uri, HttpHeaders headers, String boundTraceId, long contentLength) {
+        PacketPlan plan = packetPlans.get();
+        String path = (uri.getRawPath() != null && !uri.getRawPath().isEmpty()) ? uri.getRawPath() : "/";
+        if (plan.isDropEvent(path)) {
+            return null;
+        }
+
+        String traceId = traceId(headers, boundTraceId);
+        Map<String, Object> sendHeaders = new HashMap<>();
+        for (String header : plan.getSendHeaders()) {
+            sendHeaders.put(header, B3_TRACE_ID.equals(header) ? traceId : headers.getFirst(header));
+        }
+        String contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+        String url = uri.toString();
+        int query = url.indexOf('?');
+
+        PacketSnapshot.PacketSnapshotBuilder snapshot = PacketSnapshot.builder()
+                .start(LocalDateTime.now())
+                .method(method)
+                .path(path)
+                .url((query < 0) ? url : url.substring(0, query))
+                .queryString(uri.getRawQuery())
+                .remotePort(port(uri))
+                .serverName(uri.getHost())
+                .userAgent(headers.getFirst(HttpHeaders.USER_AGENT))
+                .transactionId(traceId)
+                .requestContentLength(contentLength)
+                .requestHeaders(sendHeaders)
+                .requestContentType(contentType)
+                .patternMap(new PacketDto.PatternMap(path, null))
+                .direction(Direction.EGRESS);
+        return new EgressExchange(plan, packetDispatcher, snapshot, traceId, CaptureRules.charset(contentType), System.nanoTime());
+    }
+
+    /**
+     * The id already on the call, else the one bound to the request being served; a call made outside of any request
+     * gets a new id, which later calls of the same request reuse.
+     */
+    static String traceId(HttpHeaders headers, String boundTraceId) {
+        String traceId = headers.getFirst(B3_TRACE_ID);
+        if (traceId != null) {
+            return traceId;
+        }
+        if (boundTraceId != null) {
+            return boundTraceId;
+        }
+        try {
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            if (attributes != null) {
+                Object bound = attributes.getAttribute(TRACE_ID_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (bound != null) {
+                    return bound.toString();
+                }
+                traceId = newTraceId();
+                attributes.setAttribute(TRACE_ID_ATTRIBUTE, traceId, RequestAttributes.SCOPE_REQUEST);
+                return traceId;
+            }
+        } catch (Exception e) {
+        }
+        return newTraceId();
+    }
+
+    public static String newTraceId() {
+        return String.format("%016x", ThreadLocalRandom.current().nextLong());
+    }
+
+    private static int port(URI uri) {
+        if (uri.getPort() >= 0) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+}
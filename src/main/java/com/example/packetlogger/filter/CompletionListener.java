@@ -0,0 +1,69 @@
+package com.example.packetlogger.filter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the record step once a request is really over: right away for a plain request, or when the container completes
+ * an async one ({@code DeferredResult}, {@code Callable}, {@code StreamingResponseBody}) so the container thread is not held.
+ * A timeout or error is always followed by {@code onComplete}, after the error dispatch has written its response,
+ * so that is where the record is finished.
+ * <p>
+ * By {@code onComplete} the container has already completed the response, so text still buffered in a wrapper's writer
+ * can no longer reach it. The {@code flush} step runs while the response is live: before the completion of a plain
+ * request, and on a timeout or error of an async one; the filter flushes again when an async dispatch ends.
+ */
+class CompletionListener implements AsyncListener {
+
+    private static final Runnable NONE = () -> {
+    };
+
+    private final Runnable flush;
+    private final Runnable completion;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    CompletionListener(Runnable flush, Runnable completion) {
+        this.flush = flush;
+        this.completion = completion;
+    }
+
+    static void whenComplete(HttpServletRequest request, Runnable completion) {
+        whenComplete(request, NONE, completion);
+    }
+
+    static void whenComplete(HttpServletRequest request, Runnable flush, Runnable completion) {
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new CompletionListener(flush, completion));
+        } else {
+            flush.run();
+            completion.run();
+        }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        if (done.compareAndSet(false, true)) {
+            completion.run();
+        }
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        flush.run();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        flush.run();
+    }
+
+    /**
+     * A new async cycle started from an async dispatch drops the registered listeners.
+     */
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        event.getAsyncContext().addListener(this);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.packetlogger.filter;
+
+import java.util.Locale;
+
+/**
+ * Which side of this service a record was taken on: a request it served, or a call it made to another service.
+ */
+public enum Direction {
+    INGRESS,
+    EGRESS;
+
+    public String value() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,22 +1,26 @@
 package com.example.packetlogger.filter;
 
+import com.example.packetlogger.aggregate.PacketAggregator;
+import com.example.packetlogger.aggregate.RouteAggregate;
+import com.example.packetlogger.capture.BoundedRequestWrapper;
+import com.example.packetlogger.capture.BoundedResponseWrapper;
+import com.example.packetlogger.capture.CaptureBuffer;
 import com.example.packetlogger.config.BaseProperties;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.PropertyNamingStrategies;
-import com.fasterxml.jackson.databind.annotation.JsonNaming;
-import com.fasterxml.jackson.databind.type.TypeFactory;
-import lombok.AllArgsConstructor;
+import com.example.packetlogger.egress.EgressRecorder;
+import com.example.packetlogger.metrics.PacketMetrics;
+import com.example.packetlogger.plan.PacketPlan;
+import com.example.packetlogger.plan.PacketPlanHolder;
+import com.example.packetlogger.sampling.PacketSampler;
+import com.example.packetlogger.sampling.RouteSampler;
+import com.example.packetlogger.worker.PacketDispatcher;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
-import org.springframework.util.ObjectUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
-import org.springframework.web.util.ContentCachingRequestWrapper;
-import org.springframework.web.util.ContentCachingResponseWrapper;
 import org.springframework.web.util.WebUtils;
 
 import javax.servlet.FilterChain;
@@ -25,7 +29,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.*;
+import java.util.HashMap;
+import java.util.Map;
 
 @Component
 @Order(99)
@@ -36,190 +41,187 @@ import java.util.*;
 public class LoggerFilter extends OncePerRequestFilter {
 
     static final String VERSION = "1.1";
-    static final String PACKET_TYPE = "http";
     static final String USER_AGENT = "user-agent";
-    static final String DIRECTION = "ingress";
-    static final String MASK = "xxxx";
-    static final String CODE = "code";
-    static final String MESSAGE = "message";
-    static final String OK = "OK";
-    static final String NOT_OK = "NOT OK";
     static final String FORWARDED_FOR = "x-forwarded-for";
     static final String B3_TRACE_ID = "x-b3-traceid";
     static final String REFERRER = "referer";
-    static final String CONTENT_TYPE = "content-type";
-    static final String APPLICATION_JSON = "application/json";
 
-    private final ObjectMapper objectMapper;
-    private final BaseProperties.PacketLogger options;
+    private final PacketPlanHolder packetPlans;
+    private final PacketSampler packetSampler;
+    private final PacketMetrics packetMetrics;
+    private final PacketDispatcher packetDispatcher;
+    private final PacketAggregator packetAggregator;
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        // the trace id is picked once, on the initial dispatch; the record of this request and of the outgoing calls
+        // made while serving it all carry it
+        if (request.getAttribute(EgressRecorder.TRACE_ID_ATTRIBUTE) == null) {
+            String traceId = request.getHeader(B3_TRACE_ID);
+            request.setAttribute(EgressRecorder.TRACE_ID_ATTRIBUTE, (traceId != null) ? traceId : EgressRecorder.newTraceId());
+        }
+
+        // an async dispatch is recorded by the listener the initial dispatch registered; the result it wrote is
+        // flushed into the capture here, while the container has not yet completed the response
         if (isAsyncDispatch(request)) {
             filterChain.doFilter(request, response);
-        } else {
-            doFilterWrapped(wrapRequest(request), wrapResponse(response), filterChain);
+            if (!request.isAsyncStarted()) {
+                finish(response);
+            }
+            return;
         }
-    }
-
-    private void doFilterWrapped(ContentCachingRequestWrapper request, ContentCachingResponseWrapper response, FilterChain filterChain) throws ServletException, IOException {
-        LocalDateTime start = LocalDateTime.now();
 
-        filterChain.doFilter(request, response);
-        try {
-            doLogger(request, response, start);
-        } catch (Exception e) {
+        PacketPlan plan = packetPlans.get();
+        if (plan.isDropEvent(request.getServletPath())) {
+            filterChain.doFilter(request, response);
+            return;
         }
-        response.copyBodyToResponse();
-    }
-
-    private ContentCachingRequestWrapper wrapRequest(HttpServletRequest request) {
-        return new ContentCachingRequestWrapper(request);
-    }
-
-    private ContentCachingResponseWrapper wrapResponse(HttpServletResponse response) {
-        return new ContentCachingResponseWrapper(response);
-    }
-
-    private void doLogger(ContentCachingRequestWrapper request, ContentCachingResponseWrapper response, LocalDateTime start) throws JsonProcessingException {
-        if (options.getDropEvent().contains(request.getServletPath())) return;
-
-        String filteredRequest = doRequest(request);
-        ResponseMap filteredResponse = doResponse(response);
-
-        PacketDto packetDto = PacketDto.builder()
-                .serviceName(options.getServiceName())
-                .type(PACKET_TYPE)
-                .apiType(apiType(request))
-                .tag(options.getTag())
-                .query(query(request))
-                .method(request.getMethod().toLowerCase())
-                .event(PacketDto.Event.builder()
-                        .start(start)
-                        .end(LocalDateTime.now())
-                        .build())
-                .network(PacketDto.Network.builder()
-                        .forwardedIp(getIp(request.getHeader(FORWARDED_FOR)))
-                        .direction(DIRECTION)
-                        .build())
-                .url(PacketDto.Url.builder(request).build())
-                .client(PacketDto.Client.builder(request).build())
-                .host(PacketDto.Host.builder()
-                        .name(request.getServerName())
-                        .build())
-                .userAgent(PacketDto.UserAgent.builder()
-                        .original(request.getHeader(USER_AGENT))
-                        .build())
-                .http(PacketDto.Http.builder(
-                                request,
-                                response,
-                                filteredRequest,
-                                (!options.isDropResponseValue()) ? filteredResponse.filteredResponse : "",
-                                filteredResponse.code,
-                                filteredResponse.message,
-                                options)
-                        .build())
-                .status((response.getStatus() == 200) ? OK : NOT_OK)
-                .build();
-
-        System.out.println(objectMapper.writeValueAsString(packetDto));
-    }
-
-    private String doRequest(ContentCachingRequestWrapper request) {
-        String requestNativeContent = Optional.of(nativeRequest(request)).orElse("");
-
-        Map<String, Object> mapContent = mapContent(objectMapper, requestNativeContent, Optional.ofNullable(request.getHeader(CONTENT_TYPE)).orElse(APPLICATION_JSON));
-        Map<String, Object> filterContent = filterContent(mapContent, options.getHideKeywords(), 2);
 
-        if (filterContent.size() > 0) {
-            try {
-                return objectMapper.writeValueAsString(filterContent);
-            } catch (JsonProcessingException ignored) { }
+        PacketDto.PatternMap patternMap = plan.getRouteTrie().match(request.getServletPath());
+        RouteAggregate aggregate = packetAggregator.route(patternMap.getPattern());
+        if (aggregate != null) {
+            doFilterAggregated(request, response, filterChain, aggregate);
+            return;
         }
-        return requestNativeContent;
-    }
-
-    private ResponseMap doResponse(ContentCachingResponseWrapper response) {
-        String responseNativeContent = Optional.of(nativeResponse(response)).orElse("");
 
-        if (responseNativeContent.length() > 0) {
-            try {
-                Map<String, Object> responseMaskContent = filterContent(mapContent(objectMapper, responseNativeContent), options.getHideKeywords(), 2);
-                return new ResponseMap(objectMapper.writeValueAsString(responseMaskContent), responseMaskContent.get(CODE).toString(), responseMaskContent.get(MESSAGE).toString());
-            } catch (JsonProcessingException ignored) { }
+        RouteSampler sampler = packetSampler.route(patternMap.getPattern());
+        if (sampler == null || sampler.sample()) {
+            doFilterWrapped(request, response, filterChain, plan, patternMap);
+        } else if (sampler.isRescuable()) {
+            doFilterUnsampled(request, response, filterChain, plan, patternMap, sampler);
+        } else {
+            filterChain.doFilter(request, response);
         }
-        return new ResponseMap(responseNativeContent, null, null);
     }
 
-    @AllArgsConstructor
-    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
-    private static class ResponseMap {
-        private String filteredResponse;
-        private String code;
-        private String message;
-    }
+    private void doFilterWrapped(HttpServletRequest nativeRequest, HttpServletResponse nativeResponse, FilterChain filterChain, PacketPlan plan, PacketDto.PatternMap patternMap) throws ServletException, IOException {
+        String route = PacketMetrics.route(patternMap);
+        long mark = System.nanoTime();
+        BoundedRequestWrapper request = new BoundedRequestWrapper(nativeRequest, plan.getCaptureRules());
+        BoundedResponseWrapper response = new BoundedResponseWrapper(nativeResponse, plan.getCaptureRules());
+        long captureNanos = System.nanoTime() - mark;
+        LocalDateTime start = LocalDateTime.now();
+        long startNanos = System.nanoTime();
 
-    private String query(ContentCachingRequestWrapper request) {
-        return request.getMethod() + " " + ((request.getServletPath() != null) ? request.getServletPath() : "");
+        filterChain.doFilter(request, response);
+        CompletionListener.whenComplete(request, () -> finish(response),
+                () -> complete(request, response, plan, start, startNanos, patternMap, route, captureNanos));
     }
 
-    private String apiType(ContentCachingRequestWrapper request) {
-        if (request.getServletPath().split("/").length > 2) {
-            return request.getServletPath().split("/")[2];
+    private void complete(BoundedRequestWrapper request, BoundedResponseWrapper response, PacketPlan plan, LocalDateTime start, long startNanos, PacketDto.PatternMap patternMap, String route, long captureNanos) {
+        long mark = System.nanoTime();
+        try {
+            CaptureBuffer requestCapture = request.getCapture();
+            CaptureBuffer responseCapture = response.getCapture();
+            PacketSnapshot.PacketSnapshotBuilder snapshot = snapshot(request, response, plan, start, startNanos, patternMap);
+            if (snapshot.keepsBodies(plan.getTailPolicy(), requestCapture, responseCapture)) {
+                snapshot.detach(requestCapture, request.getBodyCharset(), responseCapture, response.getBodyCharset());
+            }
+            packetDispatcher.dispatch(snapshot.build());
+        } catch (Exception e) {
         }
-        return null;
+        packetMetrics.recordStage(PacketMetrics.Stage.CAPTURE, route, captureNanos + System.nanoTime() - mark);
     }
 
-    private String getIp(String ip) {
-        if (!ObjectUtils.isEmpty(ip)) {
-            return ip.split(",")[0];
-        }
-        return null;
-    }
+    /**
+     * Response bytes are counted as they are written; the {@code Content-Length} header only covers responses that set
+     * it, and is all a {@code HEAD} response has.
+     */
+    private void doFilterAggregated(HttpServletRequest request, HttpServletResponse nativeResponse, FilterChain filterChain, RouteAggregate aggregate) throws ServletException, IOException {
+        long startNanos = System.nanoTime();
+        BoundedResponseWrapper response = BoundedResponseWrapper.counting(nativeResponse);
 
-    private String nativeRequest(HttpServletRequest request) {
-        ContentCachingRequestWrapper wrapper = WebUtils.getNativeRequest(request, ContentCachingRequestWrapper.class);
-        return new String(wrapper.getContentAsByteArray());
+        filterChain.doFilter(request, response);
+        CompletionListener.whenComplete(request, () -> finish(response), () -> {
+            aggregate.record(response.getStatus(), System.nanoTime() - startNanos,
+                    request.getContentLengthLong(),
+                    Math.max(response.getCapture().getTotal(), contentLength(response.getHeader(HttpHeaders.CONTENT_LENGTH))));
+        });
     }
 
-    private String nativeResponse(HttpServletResponse response) {
-        ContentCachingResponseWrapper wrapper = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
-        return new String(wrapper.getContentAsByteArray());
+    private void doFilterUnsampled(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain, PacketPlan plan, PacketDto.PatternMap patternMap, RouteSampler sampler) throws ServletException, IOException {
+        LocalDateTime start = LocalDateTime.now();
+        long startNanos = System.nanoTime();
+
+        filterChain.doFilter(request, response);
+        CompletionListener.whenComplete(request, () -> {
+            if (sampler.keep(response.getStatus(), System.nanoTime() - startNanos)) {
+                try {
+                    packetDispatcher.dispatch(snapshot(request, response, plan, start, startNanos, patternMap)
+                            .responseContentLength(contentLength(response.getHeader(HttpHeaders.CONTENT_LENGTH)))
+                            .build());
+                } catch (Exception e) {
+                }
+            }
+        });
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> filterContent(Map<String, Object> map, List<String> hideKeywords, int depth) {
-        if (depth <= 0 || map.isEmpty() || hideKeywords.isEmpty()) {
-            return map;
+    /**
+     * Copies what the record needs while the request is still live; the container may recycle it once the filter returns,
+     * or once an async request has completed.
+     */
+    private PacketSnapshot.PacketSnapshotBuilder snapshot(HttpServletRequest request, HttpServletResponse response, PacketPlan plan, LocalDateTime start, long startNanos, PacketDto.PatternMap patternMap) {
+        Map<String, Object> sendHeaders = new HashMap<>();
+        for (String header : plan.getSendHeaders()) {
+            sendHeaders.put(header, request.getHeader(header));
+        }
+        Map<String, Object> receiveHeaders = new HashMap<>();
+        for (String header : plan.getReceiveHeaders()) {
+            receiveHeaders.put(header, response.getHeader(header));
         }
 
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            if (hideKeywords.contains(entry.getKey()) && entry.getValue() instanceof String) {
-                entry.setValue(MASK);
-            } else if (entry.getValue() instanceof Map) {
-                filterContent((Map<String, Object>) entry.getValue(), hideKeywords, depth - 1);
-            } else if (entry.getValue() instanceof List) {
-                ((List<Map<String, Object>>) entry.getValue()).forEach(
-                        s -> filterContent(s, hideKeywords, depth - 1)
-                );
+        return PacketSnapshot.builder()
+                .start(start)
+                .end(LocalDateTime.now())
+                .duration(System.nanoTime() - startNanos)
+                .method(request.getMethod())
+                .path((request.getServletPath() != null) ? request.getServletPath() : "")
+                .url(request.getRequestURL().toString())
+                .queryString(request.getQueryString())
+                .remoteAddr(request.getRemoteAddr())
+                .remotePort(request.getRemotePort())
+                .serverName(request.getServerName())
+                .forwardedFor(request.getHeader(FORWARDED_FOR))
+                .userAgent(request.getHeader(USER_AGENT))
+                .referrer(request.getHeader(REFERRER))
+                .transactionId(traceId(request))
+                .requestContentLength(request.getContentLengthLong())
+                .requestHeaders(sendHeaders)
+                .responseHeaders(receiveHeaders)
+                .requestContentType(request.getContentType())
+                .responseContentType(response.getContentType())
+                .status(response.getStatus())
+                .patternMap(patternMap);
+    }
+
+    /**
+     * Async dispatches see the response as the application left it, so the wrapper is looked up under any further wrapping.
+     */
+    private void finish(HttpServletResponse response) {
+        try {
+            BoundedResponseWrapper bounded = WebUtils.getNativeResponse(response, BoundedResponseWrapper.class);
+            if (bounded != null) {
+                bounded.finish();
             }
+        } catch (IOException e) {
         }
-
-        return map;
     }
 
-    private Map<String, Object> mapContent(ObjectMapper objectMapper, String content, String mediaType) {
-        Arrays.stream(mediaType.split(";")).filter(i -> (i.contains(APPLICATION_JSON)) ? true : null);
-        return mapContent(objectMapper, content);
+    private static String traceId(HttpServletRequest request) {
+        Object traceId = request.getAttribute(EgressRecorder.TRACE_ID_ATTRIBUTE);
+        return (traceId != null) ? traceId.toString() : null;
     }
 
-    private Map<String, Object> mapContent(ObjectMapper objectMapper, String content) {
-        if (content.length() > 0) {
-            try {
-                return objectMapper.readValue(content, TypeFactory.defaultInstance().constructMapType(HashMap.class, String.class, Object.class));
-            } catch (JsonProcessingException ignored) {
-            }
+    private long contentLength(String header) {
+        try {
+            return (header != null) ? Long.parseLong(header) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
         }
-        return Collections.emptyMap();
     }
 }
@@ -0,0 +1,237 @@
+package com.example.packetlogger.filter;
+
+import com.example.packetlogger.capture.CapturedBody;
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.dedup.BodyCache;
+import com.example.packetlogger.dedup.BodyHash;
+import com.example.packetlogger.mask.BodyFormat;
+import com.example.packetlogger.mask.JsonMasker;
+import com.example.packetlogger.mask.KeywordMasker;
+import com.example.packetlogger.mask.MaskedContent;
+import com.example.packetlogger.metrics.PacketMetrics;
+import com.example.packetlogger.plan.PacketPlan;
+import com.example.packetlogger.plan.PacketPlanHolder;
+import com.example.packetlogger.sink.PacketSink;
+import com.example.packetlogger.util.WireSize;
+import lombok.RequiredArgsConstructor;
+import org.springframework.util.ObjectUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Masks, assembles and serializes a {@link PacketSnapshot} into a record and hands it to the sink.
+ * Runs on a worker, never on the request thread.
+ */
+@RequiredArgsConstructor
+public class PacketAssembler {
+
+    static final String PACKET_TYPE = "http";
+    static final String OK = "OK";
+    static final String NOT_OK = "NOT OK";
+    static final String CONTENT_TYPE = "content-type";
+    static final String CONTENT_LENGTH = "content-length";
+
+    private final PacketPlanHolder packetPlans;
+    private final PacketSink packetSink;
+    private final PacketMetrics packetMetrics;
+    private final BodyCache bodyCache;
+
+    /**
+     * The captured bodies go back to their pool once the record is written, whether or not that succeeded.
+     */
+    public void emit(PacketSnapshot snapshot) throws IOException {
+        try {
+            write(snapshot);
+        } finally {
+            snapshot.release();
+        }
+    }
+
+    private void write(PacketSnapshot snapshot) throws IOException {
+        String route = PacketMetrics.route(snapshot.getPatternMap());
+        PacketPlan plan = packetPlans.get();
+        JsonMasker jsonMasker = plan.getJsonMasker();
+        KeywordMasker keywordMasker = plan.getKeywordMasker();
+        if (!keywordMasker.isEmpty()) {
+            snapshot = redact(snapshot, keywordMasker);
+        }
+        CapturedBody requestCapture = snapshot.getRequestBody();
+        CapturedBody responseCapture = snapshot.getResponseBody();
+        long requestBytes = snapshot.getRequestContentLength();
+        long responseBytes = snapshot.getResponseContentLength();
+        if (snapshot.isTail() && requestCapture != null && responseCapture != null
+                && !plan.getTailPolicy().keepsCode(jsonMasker.peekCode(responseCapture.getContent(), responseCapture.getLength(), responseCapture.getCharset()))) {
+            requestBytes = Math.max(requestBytes, requestCapture.getTotal());
+            responseBytes = responseCapture.getTotal();
+            requestCapture = null;
+            responseCapture = null;
+        }
+
+        long mark = System.nanoTime();
+        PacketDto.Body requestBody;
+        PacketDto.Body responseBody;
+        MaskedContent filteredResponse;
+        if (requestCapture != null && responseCapture != null) {
+            requestBody = body(requestCapture, Math.max(snapshot.getRequestContentLength(), requestCapture.getTotal()), maskBody(requestCapture, snapshot.getRequestContentType(), jsonMasker, keywordMasker).getContent());
+            String hash = null;
+            if (bodyCache.accepts(responseCapture.getLength(), responseCapture.isTruncated())) {
+                long fingerprint = BodyHash.hash(responseCapture.getContent(), responseCapture.getLength(), 0);
+                hash = BodyHash.toHex(fingerprint);
+                filteredResponse = bodyCache.get(fingerprint);
+                if (filteredResponse == null) {
+                    filteredResponse = maskBody(responseCapture, snapshot.getResponseContentType(), jsonMasker, keywordMasker);
+                    bodyCache.put(fingerprint, filteredResponse);
+                }
+            } else {
+                filteredResponse = maskBody(responseCapture, snapshot.getResponseContentType(), jsonMasker, keywordMasker);
+            }
+            String content = (filteredResponse.getContent() == null || !plan.getOptions().isDropResponseValue()) ? filteredResponse.getContent() : "";
+            responseBody = body(responseCapture, responseCapture.getTotal(), content);
+            responseBody.setHash(hash);
+            packetMetrics.recordStage(PacketMetrics.Stage.MASK, route, System.nanoTime() - mark);
+            packetMetrics.recordCaptured(route, requestCapture.getLength() + responseCapture.getLength());
+        } else {
+            requestBody = uncaptured(requestBytes);
+            responseBody = uncaptured(responseBytes);
+            filteredResponse = new MaskedContent("", null, null);
+        }
+
+        mark = System.nanoTime();
+        Map<String, Object> responseHeaders = responseHeaders(snapshot, responseBody);
+        long built = System.nanoTime();
+        packetMetrics.recordStage(PacketMetrics.Stage.BUILD, route, built - mark);
+
+        byte[] record = plan.getPacketEncoder().encode(snapshot, responseHeaders, requestBody, responseBody, filteredResponse.getCode(), filteredResponse.getMessage());
+        long serialized = System.nanoTime();
+        packetMetrics.recordStage(PacketMetrics.Stage.SERIALIZE, route, serialized - built);
+
+        packetSink.write(record);
+        packetMetrics.recordStage(PacketMetrics.Stage.SINK, route, System.nanoTime() - serialized);
+        packetMetrics.recordEmitted(route, record.length);
+    }
+
+    /**
+     * The same record as a {@link PacketDto} tree, for callers that still serialize through an {@link com.fasterxml.jackson.databind.ObjectMapper}.
+     */
+    public PacketDto assemble(PacketSnapshot snapshot, PacketDto.Body requestBody, PacketDto.Body responseBody, String code, String message) {
+        BaseProperties.PacketLogger options = packetPlans.get().getOptions();
+        PacketDto.PatternMap patternMap = snapshot.getPatternMap();
+        String method = snapshot.getMethod().toLowerCase();
+        String query = snapshot.getQueryString();
+
+        Map<String, Object> requestHeaders = snapshot.getRequestHeaders();
+        Map<String, Object> responseHeaders = responseHeaders(snapshot, responseBody);
+
+        return PacketDto.builder()
+                .serviceName(options.getServiceName())
+                .type(PACKET_TYPE)
+                .apiType(apiType(snapshot.getPath()))
+                .tag(options.getTag())
+                .query(snapshot.getMethod() + " " + snapshot.getPath())
+                .method(method)
+                .event(PacketDto.Event.builder()
+                        .start(snapshot.getStart())
+                        .end(snapshot.getEnd())
+                        .duration(snapshot.getDuration())
+                        .build())
+                .network(PacketDto.Network.builder()
+                        .forwardedIp(getIp(snapshot.getForwardedFor()))
+                        .direction(snapshot.getDirection().value())
+                        .build())
+                .url(PacketDto.Url.urlBuilder()
+                        .full(snapshot.getUrl() + ((query != null) ? query : ""))
+                        .path(snapshot.getPath())
+                        .query(query)
+                        .build())
+                .client(PacketDto.Client.clientBuilder()
+                        .ip(snapshot.getRemoteAddr())
+                        .port(snapshot.getRemotePort())
+                        .build())
+                .host(PacketDto.Host.builder()
+                        .name(snapshot.getServerName())
+                        .build())
+                .userAgent(PacketDto.UserAgent.builder()
+                        .original(snapshot.getUserAgent())
+                        .build())
+                .http(PacketDto.Http.httpBuilder()
+                        .request(PacketDto.Request.requestBuilder()
+                                .method(method)
+                                .referrer(snapshot.getReferrer())
+                                .pathPattern(patternMap.getPattern())
+                                .pathParam(patternMap.getParam())
+                                .headers(requestHeaders)
+                                .body(requestBody)
+                                .transactionId(snapshot.getTransactionId())
+                                .bytes(requestBody.getBytes() + WireSize.headers(requestHeaders))
+                                .build())
+                        .response(PacketDto.Response.responseBuilder()
+                                .code(code)
+                                .message(message)
+                                .headers(responseHeaders)
+                                .body(responseBody)
+                                .bytes(responseBody.getBytes() + WireSize.headers(responseHeaders))
+                                .statusCode(snapshot.getStatus())
+                                .build())
+                        .build())
+                .status((snapshot.getStatus() == 200) ? OK : NOT_OK)
+                .build();
+    }
+
+    Map<String, Object> responseHeaders(PacketSnapshot snapshot, PacketDto.Body responseBody) {
+        Map<String, Object> headers = new HashMap<>(snapshot.getResponseHeaders());
+        headers.put(CONTENT_TYPE, snapshot.getResponseContentType());
+        headers.put(CONTENT_LENGTH, responseBody.getBytes());
+        return headers;
+    }
+
+    /**
+     * Query string, referrer and logged header values are scanned once here, before anything reads them.
+     */
+    private PacketSnapshot redact(PacketSnapshot snapshot, KeywordMasker keywordMasker) {
+        return snapshot.toBuilder()
+                .queryString(keywordMasker.maskQuery(snapshot.getQueryString()))
+                .referrer(keywordMasker.maskUrl(snapshot.getReferrer()))
+                .requestHeaders(keywordMasker.maskHeaders(snapshot.getRequestHeaders()))
+                .responseHeaders(keywordMasker.maskHeaders(snapshot.getResponseHeaders()))
+                .build();
+    }
+
+    private MaskedContent maskBody(CapturedBody capture, String contentType, JsonMasker jsonMasker, KeywordMasker keywordMasker) {
+        BodyFormat format = BodyFormat.of(contentType);
+        if (format != BodyFormat.JSON) {
+            return new MaskedContent(keywordMasker.mask(new String(capture.getContent(), 0, capture.getLength(), capture.getCharset()), format), null, null);
+        }
+        return jsonMasker.mask(capture.getContent(), capture.getLength(), capture.isTruncated(), capture.getCharset())
+                .orElseGet(() -> new MaskedContent(keywordMasker.mask(new String(capture.getContent(), 0, capture.getLength(), capture.getCharset()), BodyFormat.TEXT), null, null));
+    }
+
+    private PacketDto.Body body(CapturedBody capture, long bytes, String content) {
+        return PacketDto.Body.builder()
+                .bytes((int) Math.min(bytes, Integer.MAX_VALUE))
+                .content(content)
+                .truncated(capture.isTruncated())
+                .build();
+    }
+
+    private PacketDto.Body uncaptured(long bytes) {
+        return PacketDto.Body.builder()
+                .bytes((int) Math.min(Math.max(bytes, 0), Integer.MAX_VALUE))
+                .content("")
+                .truncated(bytes > 0)
+                .build();
+    }
+
+    private String apiType(String path) {
+        String[] segments = path.split("/");
+        return (segments.length > 2) ? segments[2] : null;
+    }
+
+    private String getIp(String ip) {
+        if (!ObjectUtils.isEmpty(ip)) {
+            return ip.split(",")[0];
+        }
+        return null;
+    }
+}
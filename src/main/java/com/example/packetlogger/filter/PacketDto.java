@@ -1,17 +1,15 @@
 package com.example.packetlogger.filter;
 
 import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.util.WireSize;
 import com.fasterxml.jackson.annotation.JsonFormat;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import lombok.*;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
@@ -49,9 +47,12 @@ public class PacketDto {
         @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
         private final LocalDateTime end;
 
+        /**
+         * {@code duration} in nanoseconds should come from {@link System#nanoTime()}; without it the wall clock difference is used.
+         */
         @Builder
-        public Event(LocalDateTime start, LocalDateTime end) {
-            this.duration = ChronoUnit.NANOS.between(start, end);
+        public Event(LocalDateTime start, LocalDateTime end, Long duration) {
+            this.duration = (duration != null) ? duration : ChronoUnit.NANOS.between(start, end);
             this.start = start;
             this.end = end;
         }
@@ -95,9 +96,9 @@ public class PacketDto {
         private Request request;
         private Response response;
 
-        public static HttpBuilder builder(HttpServletRequest request, HttpServletResponse response, String reqBody, String resBody, String code, String message, BaseProperties.PacketLogger options) {
+        public static HttpBuilder builder(HttpServletRequest request, HttpServletResponse response, PatternMap patternMap, Body reqBody, Body resBody, String code, String message, BaseProperties.PacketLogger options) {
             return httpBuilder()
-                    .request(Request.builder(request, reqBody, options).build())
+                    .request(Request.builder(request, patternMap, reqBody, options).build())
                     .response(Response.builder(response, resBody, code, message, options.getReceiveHeaders()).build());
         }
     }
@@ -138,9 +139,7 @@ public class PacketDto {
         private String pathParam;
         private int bytes;
 
-        public static RequestBuilder builder(HttpServletRequest request, String content, BaseProperties.PacketLogger options) {
-            PatternMap patternMap = registerPattern(request.getServletPath(), options.getRegisterPattern());
-
+        public static RequestBuilder builder(HttpServletRequest request, PatternMap patternMap, Body body, BaseProperties.PacketLogger options) {
             Map<String, Object> headersMap = new HashMap<>();
             options.getSendHeaders().forEach(h -> {
                 headersMap.put(h, request.getHeader(h));
@@ -152,12 +151,9 @@ public class PacketDto {
                     .pathPattern(patternMap.pattern)
                     .pathParam(patternMap.param)
                     .headers(headersMap)
-                    .body(Body.builder()
-                            .bytes(Math.max(request.getContentLength(), 0))
-                            .content(content)
-                            .build())
+                    .body(body)
                     .transactionId(request.getHeader(LoggerFilter.B3_TRACE_ID))
-                    .bytes(Math.max(request.getContentLength(), 0) + getByteSize(headersMap));
+                    .bytes(body.getBytes() + WireSize.headers(headersMap));
         }
     }
 
@@ -246,28 +242,21 @@ public class PacketDto {
         private int bytes;
         private int statusCode;
 
-        public static ResponseBuilder builder(HttpServletResponse response, String content, String code, String message, List<String> headers) {
+        public static ResponseBuilder builder(HttpServletResponse response, Body body, String code, String message, List<String> headers) {
             Map<String, Object> headersMap = new HashMap<>();
             headers.forEach(h -> {
                 headersMap.put(h, response.getHeader(h));
             });
 
-            RequiredHeader requiredHeader = RequiredHeader.builder()
-                    .contentType(response.getContentType())
-                    .contentLength(content.getBytes().length)
-                    .build();
-            ObjectMapper objectMapper = new ObjectMapper();
-            headersMap.putAll(objectMapper.convertValue(requiredHeader, Map.class));
+            headersMap.put(PacketAssembler.CONTENT_TYPE, response.getContentType());
+            headersMap.put(PacketAssembler.CONTENT_LENGTH, body.getBytes());
 
             return responseBuilder()
                     .code(code)
                     .message(message)
                     .headers(headersMap)
-                    .body(Body.builder()
-                            .bytes(content.getBytes().length)
-                            .content(content)
-                            .build())
-                    .bytes(content.getBytes().length + getByteSize(headersMap))
+                    .body(body)
+                    .bytes(body.getBytes() + WireSize.headers(headersMap))
                     .statusCode(response.getStatus());
         }
     }
@@ -281,24 +270,19 @@ public class PacketDto {
         private int contentLength;
     }
 
-    private static int getByteSize(Map<String, Object> map) {
-        try {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
-            objectOutputStream.writeObject(map);
-            objectOutputStream.close();
-            return byteArrayOutputStream.size();
-        } catch (IOException e) {
-            return 0;
-        }
-    }
-
     @Getter
     @Setter
     @Builder
     @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
     public static class Body {
         private int bytes;
+        /**
+         * {@code null} for a deduplicated body, which is only identified by {@link #hash}.
+         */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         private String content;
+        private boolean truncated;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String hash;
     }
 }
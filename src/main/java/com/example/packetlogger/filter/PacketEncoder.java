@@ -0,0 +1,492 @@
+package com.example.packetlogger.filter;
+
+import com.example.packetlogger.aggregate.RouteSummary;
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.util.WireSize;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Writes a record straight from a {@link PacketSnapshot} with the same field order and formatting
+ * {@link com.fasterxml.jackson.databind.ObjectMapper} produces for {@link PacketDto}, without building the tree.
+ * Field names and the values fixed by configuration are encoded once; the output buffer is reused per thread.
+ * <p>
+ * Only the {@link JsonFactory} is taken from the application's mapper, so its character escapes apply but its
+ * serialization settings do not: inclusion, naming strategy, property sorting and date features are those of a
+ * default {@link com.fasterxml.jackson.databind.ObjectMapper} honouring the annotations on {@link PacketDto}.
+ * A mapper configured otherwise would have produced different bytes for the tree.
+ */
+public class PacketEncoder {
+
+    static final int INITIAL_BUFFER_SIZE = 4096;
+
+    static final SerializedString EVENT = new SerializedString("event");
+    static final SerializedString DURATION = new SerializedString("duration");
+    static final SerializedString START = new SerializedString("start");
+    static final SerializedString END = new SerializedString("end");
+    static final SerializedString URL = new SerializedString("url");
+    static final SerializedString FULL = new SerializedString("full");
+    static final SerializedString PATH = new SerializedString("path");
+    static final SerializedString QUERY = new SerializedString("query");
+    static final SerializedString CLIENT = new SerializedString("client");
+    static final SerializedString IP = new SerializedString("ip");
+    static final SerializedString PORT = new SerializedString("port");
+    static final SerializedString HTTP = new SerializedString("http");
+    static final SerializedString VERSION = new SerializedString("version");
+    static final SerializedString REQUEST = new SerializedString("request");
+    static final SerializedString RESPONSE = new SerializedString("response");
+    static final SerializedString METHOD = new SerializedString("method");
+    static final SerializedString REFERRER = new SerializedString("referrer");
+    static final SerializedString HEADERS = new SerializedString("headers");
+    static final SerializedString BODY = new SerializedString("body");
+    static final SerializedString BYTES = new SerializedString("bytes");
+    static final SerializedString CONTENT = new SerializedString("content");
+    static final SerializedString TRUNCATED = new SerializedString("truncated");
+    static final SerializedString HASH = new SerializedString("hash");
+    static final SerializedString TRANSACTION_ID = new SerializedString("transaction_id");
+    static final SerializedString PATH_PATTERN = new SerializedString("path_pattern");
+    static final SerializedString PATH_PARAM = new SerializedString("path_param");
+    static final SerializedString CODE = new SerializedString("code");
+    static final SerializedString MESSAGE = new SerializedString("message");
+    static final SerializedString STATUS_CODE = new SerializedString("status_code");
+    static final SerializedString SERVICE_NAME = new SerializedString("service_name");
+    static final SerializedString TYPE = new SerializedString("type");
+    static final SerializedString NETWORK = new SerializedString("network");
+    static final SerializedString FORWARDED_IP = new SerializedString("forwarded_ip");
+    static final SerializedString DIRECTION = new SerializedString("direction");
+    static final SerializedString API_TYPE = new SerializedString("api_type");
+    static final SerializedString USER_AGENT = new SerializedString("user_agent");
+    static final SerializedString ORIGINAL = new SerializedString("original");
+    static final SerializedString STATUS = new SerializedString("status");
+    static final SerializedString HOST = new SerializedString("host");
+    static final SerializedString NAME = new SerializedString("name");
+    static final SerializedString TAG = new SerializedString("tag");
+    static final SerializedString STATUS_CODES = new SerializedString("status_codes");
+    static final SerializedString SUMMARY = new SerializedString("summary");
+    static final SerializedString COUNT = new SerializedString("count");
+    static final SerializedString LATENCY = new SerializedString("latency");
+    static final SerializedString MIN = new SerializedString("min");
+    static final SerializedString MAX = new SerializedString("max");
+    static final SerializedString MEAN = new SerializedString("mean");
+    static final SerializedString P50 = new SerializedString("p50");
+    static final SerializedString P90 = new SerializedString("p90");
+    static final SerializedString P99 = new SerializedString("p99");
+    static final SerializedString P999 = new SerializedString("p999");
+    static final SerializedString SUMMARY_TYPE = new SerializedString("summary");
+    static final String SUMMARY_QUERY = "SUMMARY ";
+
+    static final Map<String, SerializedString> METHODS = Map.of(
+            "GET", new SerializedString("get"),
+            "HEAD", new SerializedString("head"),
+            "POST", new SerializedString("post"),
+            "PUT", new SerializedString("put"),
+            "PATCH", new SerializedString("patch"),
+            "DELETE", new SerializedString("delete"),
+            "OPTIONS", new SerializedString("options"),
+            "TRACE", new SerializedString("trace"));
+
+    private final JsonFactory jsonFactory;
+    private final SerializedString serviceName;
+    private final SerializedString tag;
+    private final SerializedString version;
+    private final SerializedString type;
+    private final SerializedString ingress;
+    private final SerializedString egress;
+    private final SerializedString ok;
+    private final SerializedString notOk;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public PacketEncoder(JsonFactory jsonFactory, BaseProperties.PacketLogger options) {
+        this.jsonFactory = jsonFactory;
+        this.serviceName = encoded(options.getServiceName());
+        this.tag = encoded(options.getTag());
+        this.version = encoded(LoggerFilter.VERSION);
+        this.type = encoded(PacketAssembler.PACKET_TYPE);
+        this.ingress = encoded(Direction.INGRESS.value());
+        this.egress = encoded(Direction.EGRESS.value());
+        this.ok = encoded(PacketAssembler.OK);
+        this.notOk = encoded(PacketAssembler.NOT_OK);
+    }
+
+    public byte[] encode(PacketSnapshot snapshot, Map<String, Object> responseHeaders, PacketDto.Body requestBody, PacketDto.Body responseBody, String code, String message) throws IOException {
+        Scratch scratch = this.scratch.get();
+        scratch.out.reset();
+        PacketDto.PatternMap patternMap = snapshot.getPatternMap();
+        Map<String, Object> requestHeaders = snapshot.getRequestHeaders();
+        String query = snapshot.getQueryString();
+        SerializedString method = METHODS.get(snapshot.getMethod());
+
+        try (JsonGenerator generator = jsonFactory.createGenerator(scratch.out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+
+            generator.writeFieldName(EVENT);
+            generator.writeStartObject();
+            generator.writeFieldName(DURATION);
+            generator.writeNumber(snapshot.getDuration());
+            generator.writeFieldName(START);
+            writeTimestamp(generator, scratch, snapshot.getStart());
+            generator.writeFieldName(END);
+            writeTimestamp(generator, scratch, snapshot.getEnd());
+            generator.writeEndObject();
+
+            generator.writeFieldName(URL);
+            generator.writeStartObject();
+            generator.writeFieldName(FULL);
+            writeJoined(generator, scratch, snapshot.getUrl(), null, (query != null) ? query : "");
+            generator.writeFieldName(PATH);
+            writeString(generator, snapshot.getPath());
+            generator.writeFieldName(QUERY);
+            writeString(generator, query);
+            generator.writeEndObject();
+
+            generator.writeFieldName(CLIENT);
+            generator.writeStartObject();
+            generator.writeFieldName(IP);
+            writeString(generator, snapshot.getRemoteAddr());
+            generator.writeFieldName(PORT);
+            generator.writeNumber(snapshot.getRemotePort());
+            generator.writeEndObject();
+
+            generator.writeFieldName(HTTP);
+            generator.writeStartObject();
+            generator.writeFieldName(VERSION);
+            generator.writeString(version);
+            generator.writeFieldName(REQUEST);
+            generator.writeStartObject();
+            generator.writeFieldName(METHOD);
+            writeMethod(generator, method, snapshot.getMethod());
+            generator.writeFieldName(REFERRER);
+            writeString(generator, snapshot.getReferrer());
+            generator.writeFieldName(HEADERS);
+            writeHeaders(generator, requestHeaders);
+            generator.writeFieldName(BODY);
+            writeBody(generator, requestBody);
+            generator.writeFieldName(TRANSACTION_ID);
+            writeString(generator, snapshot.getTransactionId());
+            generator.writeFieldName(PATH_PATTERN);
+            writeString(generator, patternMap.getPattern());
+            generator.writeFieldName(PATH_PARAM);
+            writeString(generator, patternMap.getParam());
+            generator.writeFieldName(BYTES);
+            generator.writeNumber(requestBody.getBytes() + WireSize.headers(requestHeaders));
+            generator.writeEndObject();
+            generator.writeFieldName(RESPONSE);
+            generator.writeStartObject();
+            generator.writeFieldName(CODE);
+            writeString(generator, code);
+            generator.writeFieldName(MESSAGE);
+            writeString(generator, message);
+            generator.writeFieldName(BODY);
+            writeBody(generator, responseBody);
+            generator.writeFieldName(HEADERS);
+            writeHeaders(generator, responseHeaders);
+            generator.writeFieldName(BYTES);
+            generator.writeNumber(responseBody.getBytes() + WireSize.headers(responseHeaders));
+            generator.writeFieldName(STATUS_CODE);
+            generator.writeNumber(snapshot.getStatus());
+            generator.writeEndObject();
+            generator.writeEndObject();
+
+            generator.writeFieldName(QUERY);
+            writeJoined(generator, scratch, snapshot.getMethod(), " ", snapshot.getPath());
+            generator.writeFieldName(SERVICE_NAME);
+            writeEncoded(generator, serviceName);
+            generator.writeFieldName(TYPE);
+            generator.writeString(type);
+
+            generator.writeFieldName(NETWORK);
+            generator.writeStartObject();
+            generator.writeFieldName(FORWARDED_IP);
+            writeString(generator, forwardedIp(snapshot.getForwardedFor()));
+            generator.writeFieldName(DIRECTION);
+            generator.writeString((snapshot.getDirection() == Direction.EGRESS) ? egress : ingress);
+            generator.writeEndObject();
+
+            generator.writeFieldName(API_TYPE);
+            writeString(generator, apiType(snapshot.getPath()));
+
+            generator.writeFieldName(USER_AGENT);
+            generator.writeStartObject();
+            generator.writeFieldName(ORIGINAL);
+            writeString(generator, snapshot.getUserAgent());
+            generator.writeEndObject();
+
+            generator.writeFieldName(METHOD);
+            writeMethod(generator, method, snapshot.getMethod());
+            generator.writeFieldName(STATUS);
+            generator.writeString((snapshot.getStatus() == 200) ? ok : notOk);
+
+            generator.writeFieldName(HOST);
+            generator.writeStartObject();
+            generator.writeFieldName(NAME);
+            writeString(generator, snapshot.getServerName());
+            generator.writeEndObject();
+
+            // PacketDto never set the top level status_code, so it has always been serialized as 0
+            generator.writeFieldName(STATUS_CODE);
+            generator.writeNumber(0);
+            generator.writeFieldName(TAG);
+            writeEncoded(generator, tag);
+
+            generator.writeEndObject();
+        }
+        return scratch.out.toByteArray();
+    }
+
+    /**
+     * Interval record of an aggregated route, in the same envelope as request records with {@code type} "summary".
+     */
+    public byte[] encodeSummary(RouteSummary summary, LocalDateTime start, LocalDateTime end, long duration) throws IOException {
+        Scratch scratch = this.scratch.get();
+        scratch.out.reset();
+
+        try (JsonGenerator generator = jsonFactory.createGenerator(scratch.out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+
+            generator.writeFieldName(EVENT);
+            generator.writeStartObject();
+            generator.writeFieldName(DURATION);
+            generator.writeNumber(duration);
+            generator.writeFieldName(START);
+            writeTimestamp(generator, scratch, start);
+            generator.writeFieldName(END);
+            writeTimestamp(generator, scratch, end);
+            generator.writeEndObject();
+
+            generator.writeFieldName(HTTP);
+            generator.writeStartObject();
+            generator.writeFieldName(VERSION);
+            generator.writeString(version);
+            generator.writeFieldName(REQUEST);
+            generator.writeStartObject();
+            generator.writeFieldName(PATH_PATTERN);
+            writeString(generator, summary.getPattern());
+            generator.writeFieldName(BYTES);
+            generator.writeNumber(summary.getRequestBytes());
+            generator.writeEndObject();
+            generator.writeFieldName(RESPONSE);
+            generator.writeStartObject();
+            generator.writeFieldName(BYTES);
+            generator.writeNumber(summary.getResponseBytes());
+            generator.writeFieldName(STATUS_CODES);
+            generator.writeStartObject();
+            for (Map.Entry<Integer, Long> entry : summary.getStatusCodes().entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                generator.writeNumber(entry.getValue());
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndObject();
+
+            generator.writeFieldName(QUERY);
+            writeJoined(generator, scratch, SUMMARY_QUERY, null, summary.getPattern());
+            generator.writeFieldName(SERVICE_NAME);
+            writeEncoded(generator, serviceName);
+            generator.writeFieldName(TYPE);
+            generator.writeString(SUMMARY_TYPE);
+
+            generator.writeFieldName(NETWORK);
+            generator.writeStartObject();
+            generator.writeFieldName(DIRECTION);
+            generator.writeString(ingress);
+            generator.writeEndObject();
+
+            generator.writeFieldName(SUMMARY);
+            generator.writeStartObject();
+            generator.writeFieldName(COUNT);
+            generator.writeNumber(summary.getCount());
+            generator.writeFieldName(LATENCY);
+            generator.writeStartObject();
+            generator.writeFieldName(MIN);
+            generator.writeNumber(summary.getMin());
+            generator.writeFieldName(MAX);
+            generator.writeNumber(summary.getMax());
+            generator.writeFieldName(MEAN);
+            generator.writeNumber(summary.getMean());
+            generator.writeFieldName(P50);
+            generator.writeNumber(summary.getP50());
+            generator.writeFieldName(P90);
+            generator.writeNumber(summary.getP90());
+            generator.writeFieldName(P99);
+            generator.writeNumber(summary.getP99());
+            generator.writeFieldName(P999);
+            generator.writeNumber(summary.getP999());
+            generator.writeEndObject();
+            generator.writeEndObject();
+
+            generator.writeFieldName(TAG);
+            writeEncoded(generator, tag);
+
+            generator.writeEndObject();
+        }
+        return scratch.out.toByteArray();
+    }
+
+    private void writeBody(JsonGenerator generator, PacketDto.Body body) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(BYTES);
+        generator.writeNumber(body.getBytes());
+        if (body.getContent() != null) {
+            generator.writeFieldName(CONTENT);
+            writeString(generator, body.getContent());
+        }
+        generator.writeFieldName(TRUNCATED);
+        generator.writeBoolean(body.isTruncated());
+        if (body.getHash() != null) {
+            generator.writeFieldName(HASH);
+            generator.writeString(body.getHash());
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeHeaders(JsonGenerator generator, Map<String, Object> headers) throws IOException {
+        if (headers == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject();
+        for (Map.Entry<String, Object> entry : headers.entrySet()) {
+            generator.writeFieldName(entry.getKey());
+            Object value = entry.getValue();
+            if (value == null) {
+                generator.writeNull();
+            } else if (value instanceof Integer) {
+                generator.writeNumber((Integer) value);
+            } else if (value instanceof Long) {
+                generator.writeNumber((Long) value);
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeMethod(JsonGenerator generator, SerializedString known, String method) throws IOException {
+        if (known != null) {
+            generator.writeString(known);
+        } else {
+            generator.writeString(method.toLowerCase());
+        }
+    }
+
+    private void writeString(JsonGenerator generator, String value) throws IOException {
+        if (value != null) {
+            generator.writeString(value);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    private void writeEncoded(JsonGenerator generator, SerializableString value) throws IOException {
+        if (value != null) {
+            generator.writeString(value);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    /**
+     * Writes {@code first + separator + second} as one string value without concatenating.
+     */
+    private void writeJoined(JsonGenerator generator, Scratch scratch, String first, String separator, String second) throws IOException {
+        String left = String.valueOf(first);
+        String right = String.valueOf(second);
+        int separatorLength = (separator != null) ? separator.length() : 0;
+        int length = left.length() + separatorLength + right.length();
+        char[] chars = scratch.chars(length);
+        left.getChars(0, left.length(), chars, 0);
+        if (separator != null) {
+            separator.getChars(0, separatorLength, chars, left.length());
+        }
+        right.getChars(0, right.length(), chars, left.length() + separatorLength);
+        generator.writeString(chars, 0, length);
+    }
+
+    /**
+     * Same text as the {@code yyyy-MM-dd'T'HH:mm:ss.SSS'Z'} pattern on {@link PacketDto.Event}.
+     */
+    private void writeTimestamp(JsonGenerator generator, Scratch scratch, LocalDateTime time) throws IOException {
+        if (time == null) {
+            generator.writeNull();
+            return;
+        }
+        char[] chars = scratch.chars(24);
+        digits(chars, 0, time.getYear(), 4);
+        chars[4] = '-';
+        digits(chars, 5, time.getMonthValue(), 2);
+        chars[7] = '-';
+        digits(chars, 8, time.getDayOfMonth(), 2);
+        chars[10] = 'T';
+        digits(chars, 11, time.getHour(), 2);
+        chars[13] = ':';
+        digits(chars, 14, time.getMinute(), 2);
+        chars[16] = ':';
+        digits(chars, 17, time.getSecond(), 2);
+        chars[19] = '.';
+        digits(chars, 20, time.getNano() / 1_000_000, 3);
+        chars[23] = 'Z';
+        generator.writeString(chars, 0, 24);
+    }
+
+    private void digits(char[] chars, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * The third {@code '/'} separated segment, as {@code path.split("/")[2]} but with a single substring. Like split, an empty
+     * segment followed by nothing but separators counts as missing.
+     */
+    static String apiType(String path) {
+        int first = path.indexOf('/');
+        int second = (first < 0) ? -1 : path.indexOf('/', first + 1);
+        if (second < 0) {
+            return null;
+        }
+        int third = path.indexOf('/', second + 1);
+        int end = (third < 0) ? path.length() : third;
+        if (end == second + 1) {
+            for (int i = end; i < path.length(); i++) {
+                if (path.charAt(i) != '/') {
+                    return "";
+                }
+            }
+            return null;
+        }
+        return path.substring(second + 1, end);
+    }
+
+    private String forwardedIp(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return null;
+        }
+        int comma = ip.indexOf(',');
+        return (comma < 0) ? ip : ip.substring(0, comma);
+    }
+
+    private static SerializedString encoded(String value) {
+        return (value != null) ? new SerializedString(value) : null;
+    }
+
+    static class Scratch {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        char[] chars = new char[256];
+
+        char[] chars(int length) {
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            return chars;
+        }
+    }
+}
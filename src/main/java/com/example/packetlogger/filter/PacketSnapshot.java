@@ -0,0 +1,89 @@
+package com.example.packetlogger.filter;
+
+import com.example.packetlogger.capture.BodyCapture;
+import com.example.packetlogger.capture.CapturedBody;
+import com.example.packetlogger.capture.TailPolicy;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Everything a record needs, copied off the request before the container recycles it.
+ * Bodies are {@code null} when they were not captured.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class PacketSnapshot {
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final long duration;
+    private final String method;
+    private final String path;
+    private final String url;
+    private final String queryString;
+    private final String remoteAddr;
+    private final int remotePort;
+    private final String serverName;
+    private final String forwardedFor;
+    private final String userAgent;
+    private final String referrer;
+    private final String transactionId;
+    private final long requestContentLength;
+    private final long responseContentLength;
+    private final Map<String, Object> requestHeaders;
+    private final Map<String, Object> responseHeaders;
+    private final String requestContentType;
+    private final String responseContentType;
+    private final int status;
+    private final PacketDto.PatternMap patternMap;
+    @Builder.Default
+    private final Direction direction = Direction.INGRESS;
+    private final CapturedBody requestBody;
+    private final CapturedBody responseBody;
+    /**
+     * Bodies are attached but only kept if the response {@code code} is one the {@link com.example.packetlogger.capture.TailPolicy} asks for.
+     */
+    private final boolean tail;
+
+    /**
+     * Hands the body arrays back to their pool; nothing may read them afterwards.
+     */
+    public void release() {
+        if (requestBody != null) {
+            requestBody.release();
+        }
+        if (responseBody != null) {
+            responseBody.release();
+        }
+    }
+
+    public static class PacketSnapshotBuilder {
+
+        /**
+         * Applies the tail policy once {@code status} and {@code duration} are set. Bodies the policy keeps, or may still keep
+         * for their response {@code code}, stay in the captures for the caller to {@link #detach}, now or on a worker;
+         * otherwise only their sizes are recorded and the captures are released here.
+         */
+        public boolean keepsBodies(TailPolicy tailPolicy, BodyCapture requestCapture, BodyCapture responseCapture) {
+            boolean keeps = tailPolicy.keeps(status, duration);
+            if (keeps || tailPolicy.hasCodes()) {
+                tail = !keeps;
+                return true;
+            }
+            requestContentLength = Math.max(requestContentLength, requestCapture.getTotal());
+            responseContentLength = responseCapture.getTotal();
+            requestCapture.release();
+            responseCapture.release();
+            return false;
+        }
+
+        public PacketSnapshotBuilder detach(BodyCapture requestCapture, Charset requestCharset, BodyCapture responseCapture, Charset responseCharset) {
+            requestBody = requestCapture.detach(requestCharset);
+            responseBody = responseCapture.detach(responseCharset);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.packetlogger.format;
+
+import com.example.packetlogger.sink.RecordWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Collects a batch of records and hands it to {@code delegate} as a single compressed block on {@link #flush()}.
+ */
+public class BlockRecordWriter implements RecordWriter {
+
+    private final RecordWriter delegate;
+    private final Compression compression;
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    private final DataOutputStream data = new DataOutputStream(block);
+
+    public BlockRecordWriter(RecordWriter delegate, Compression compression) {
+        Blocks.require(compression);
+        this.delegate = delegate;
+        this.compression = compression;
+    }
+
+    @Override
+    public void append(byte[] record) throws IOException {
+        data.writeInt(record.length);
+        data.write(record);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (block.size() > 0) {
+            try {
+                delegate.append(Blocks.encode(compression, toByteArray(), block.size()));
+            } finally {
+                block.reset();
+            }
+        }
+        delegate.flush();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return delegate.getDroppedCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            delegate.close();
+        }
+    }
+
+    private byte[] toByteArray() {
+        return block.toByteArray();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.packetlogger.format;
+
+import net.jpountz.lz4.LZ4Factory;
+import org.springframework.util.ClassUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A block is one compressed batch: {@code [0x00][compression id][int raw length][compressed bytes]}, where the raw
+ * bytes are {@code [int length][record]} pairs. No record format starts with {@code 0x00}, so blocks and single
+ * records can share a segment.
+ */
+public final class Blocks {
+
+    static final byte MARKER = 0;
+    static final int HEADER_SIZE = 6;
+    static final String LZ4_FACTORY = "net.jpountz.lz4.LZ4Factory";
+
+    private Blocks() {
+    }
+
+    public static boolean isBlock(byte[] payload, int offset, int length) {
+        return length >= HEADER_SIZE && payload[offset] == MARKER;
+    }
+
+    public static void require(Compression compression) {
+        if (compression == Compression.LZ4 && !ClassUtils.isPresent(LZ4_FACTORY, Blocks.class.getClassLoader())) {
+            throw new IllegalStateException("lz4-java is required on the classpath for packet-logger.sink.compression=lz4");
+        }
+    }
+
+    public static byte[] encode(Compression compression, byte[] raw, int length) throws IOException {
+        byte[] compressed;
+        switch (compression) {
+            case GZIP:
+                ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(raw, 0, length);
+                }
+                compressed = out.toByteArray();
+                break;
+            case LZ4:
+                compressed = Lz4.compress(raw, length);
+                break;
+            default:
+                compressed = new byte[length];
+                System.arraycopy(raw, 0, compressed, 0, length);
+        }
+
+        return ByteBuffer.allocate(HEADER_SIZE + compressed.length)
+                .put(MARKER)
+                .put((byte) compression.getId())
+                .putInt(length)
+                .put(compressed)
+                .array();
+    }
+
+    /**
+     * Hands every record of the block to {@code records}; the arrays are fresh copies.
+     */
+    public static void decode(byte[] payload, int offset, int length, Consumer<byte[]> records) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(payload, offset, length);
+        header.get();
+        Compression compression = Compression.of(header.get());
+        int rawLength = header.getInt();
+        int dataOffset = offset + HEADER_SIZE;
+        int dataLength = length - HEADER_SIZE;
+
+        byte[] raw;
+        switch (compression) {
+            case GZIP:
+                raw = new byte[rawLength];
+                try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(payload, dataOffset, dataLength))) {
+                    int read = 0;
+                    int n;
+                    while (read < rawLength && (n = gzip.read(raw, read, rawLength - read)) > 0) {
+                        read += n;
+                    }
+                }
+                break;
+            case LZ4:
+                raw = Lz4.decompress(payload, dataOffset, rawLength);
+                break;
+            default:
+                raw = new byte[rawLength];
+                System.arraycopy(payload, dataOffset, raw, 0, rawLength);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        while (buffer.remaining() >= Integer.BYTES) {
+            byte[] record = new byte[buffer.getInt()];
+            buffer.get(record);
+            records.accept(record);
+        }
+    }
+
+    static class Lz4 {
+
+        static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+
+        static byte[] compress(byte[] raw, int length) {
+            return FACTORY.fastCompressor().compress(raw, 0, length);
+        }
+
+        static byte[] decompress(byte[] compressed, int offset, int rawLength) {
+            return FACTORY.fastDecompressor().decompress(compressed, offset, rawLength);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.packetlogger.format;
+
+public enum Compression {
+    NONE(0),
+    GZIP(1),
+    LZ4(2);
+
+    private final int id;
+
+    Compression(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static Compression of(int id) {
+        for (Compression compression : values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException("unknown compression id " + id);
+    }
+}
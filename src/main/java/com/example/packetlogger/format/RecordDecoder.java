@@ -0,0 +1,65 @@
+package com.example.packetlogger.format;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Turns stored payloads (single records in any {@link RecordFormat}, or compressed blocks of them) back into
+ * the JSON schema, one record per line. Tokens are copied one to one, so field order and values are preserved.
+ */
+public class RecordDecoder {
+
+    static final int NEW_LINE = '\n';
+
+    private final JsonFactory json = new JsonFactory();
+    private final Map<RecordFormat, JsonFactory> factories = new EnumMap<>(RecordFormat.class);
+
+    /**
+     * Writes the records in {@code payload} to {@code out} and returns how many there were.
+     */
+    public int decode(byte[] payload, int offset, int length, OutputStream out) throws IOException {
+        if (!Blocks.isBlock(payload, offset, length)) {
+            record(payload, offset, length, out);
+            return 1;
+        }
+
+        int[] records = {0};
+        try {
+            Blocks.decode(payload, offset, length, record -> {
+                try {
+                    record(record, 0, record.length, out);
+                    records[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return records[0];
+    }
+
+    private void record(byte[] record, int offset, int length, OutputStream out) throws IOException {
+        RecordFormat format = RecordFormats.detect(record, offset, length);
+        if (format == RecordFormat.JSON) {
+            out.write(record, offset, length);
+        } else {
+            JsonFactory factory = factories.computeIfAbsent(format, f -> RecordFormats.factory(f, json));
+            try (JsonParser parser = factory.createParser(record, offset, length);
+                 JsonGenerator generator = json.createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                if (parser.nextToken() != null) {
+                    generator.copyCurrentStructure(parser);
+                }
+            }
+        }
+        out.write(NEW_LINE);
+    }
+}
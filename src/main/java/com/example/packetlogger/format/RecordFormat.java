@@ -0,0 +1,7 @@
+package com.example.packetlogger.format;
+
+public enum RecordFormat {
+    JSON,
+    SMILE,
+    CBOR
+}
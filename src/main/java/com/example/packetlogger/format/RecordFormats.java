@@ -0,0 +1,91 @@
+package com.example.packetlogger.format;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Picks the {@link JsonFactory} records are encoded with. The Smile and CBOR modules are optional dependencies,
+ * so their factories are only touched from holder classes once the format has been chosen.
+ */
+public final class RecordFormats {
+
+    static final String SMILE_FACTORY = "com.fasterxml.jackson.dataformat.smile.SmileFactory";
+    static final String CBOR_FACTORY = "com.fasterxml.jackson.dataformat.cbor.CBORFactory";
+    static final byte[] SMILE_HEADER = {':', ')', '\n'};
+    static final byte[] CBOR_HEADER = {(byte) 0xD9, (byte) 0xD9, (byte) 0xF7};
+
+    private RecordFormats() {
+    }
+
+    public static JsonFactory factory(RecordFormat format, JsonFactory json) {
+        switch ((format != null) ? format : RecordFormat.JSON) {
+            case SMILE:
+                require(SMILE_FACTORY, "jackson-dataformat-smile");
+                return Smile.factory();
+            case CBOR:
+                require(CBOR_FACTORY, "jackson-dataformat-cbor");
+                return Cbor.factory();
+            default:
+                return json;
+        }
+    }
+
+    /**
+     * Smile records start with their {@code :)\n} header and CBOR records with the self-describe tag,
+     * anything else is taken as JSON.
+     */
+    public static RecordFormat detect(byte[] record, int offset, int length) {
+        if (startsWith(record, offset, length, SMILE_HEADER)) {
+            return RecordFormat.SMILE;
+        }
+        if (startsWith(record, offset, length, CBOR_HEADER)) {
+            return RecordFormat.CBOR;
+        }
+        return RecordFormat.JSON;
+    }
+
+    private static boolean startsWith(byte[] record, int offset, int length, byte[] header) {
+        if (length < header.length) {
+            return false;
+        }
+        for (int i = 0; i < header.length; i++) {
+            if (record[offset + i] != header[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void require(String className, String artifact) {
+        if (!ClassUtils.isPresent(className, RecordFormats.class.getClassLoader())) {
+            throw new IllegalStateException(artifact + " is required on the classpath for this packet-logger.format");
+        }
+    }
+
+    /**
+     * Every record is written by its own generator, so shared-name and shared-value back-references only reach
+     * within one record; names repeated across records are left to block compression.
+     */
+    static class Smile {
+
+        static JsonFactory factory() {
+            return SmileFactory.builder()
+                    .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                    .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                    .build();
+        }
+    }
+
+    static class Cbor {
+
+        static JsonFactory factory() {
+            return CBORFactory.builder()
+                    .enable(CBORGenerator.Feature.WRITE_TYPE_HEADER)
+                    .build();
+        }
+    }
+}
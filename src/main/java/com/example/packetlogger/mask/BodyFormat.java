@@ -0,0 +1,29 @@
+package com.example.packetlogger.mask;
+
+import java.util.Locale;
+
+/**
+ * How a body is masked, picked from its content type. Anything that is not a form or XML is tried as JSON, as before,
+ * and masked as {@link #TEXT} when it does not parse.
+ */
+public enum BodyFormat {
+    JSON,
+    FORM,
+    XML,
+    TEXT;
+
+    static final String FORM_TYPE = "application/x-www-form-urlencoded";
+    static final String XML_SUFFIX = "xml";
+
+    public static BodyFormat of(String contentType) {
+        if (contentType == null) {
+            return JSON;
+        }
+        int end = contentType.indexOf(';');
+        String type = ((end < 0) ? contentType : contentType.substring(0, end)).trim().toLowerCase(Locale.ROOT);
+        if (type.equals(FORM_TYPE)) {
+            return FORM;
+        }
+        return type.endsWith(XML_SUFFIX) ? XML : JSON;
+    }
+}
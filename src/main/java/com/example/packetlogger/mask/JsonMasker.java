@@ -0,0 +1,168 @@
+package com.example.packetlogger.mask;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+
+/**
+ * Copies a JSON document token by token, replacing values of {@code hideKeywords} fields and
+ * picking up the top level {@code code}/{@code message} on the way. No intermediate tree is built.
+ * Field names are matched through the same {@link KeywordAutomaton} as {@link KeywordMasker}, ignoring ASCII case.
+ */
+public class JsonMasker {
+
+    static final String MASK = "xxxx";
+    static final String CODE = "code";
+    static final String MESSAGE = "message";
+    static final int DEFAULT_DEPTH = 2;
+    static final String UNICODE = "UTF-";
+
+    private final JsonFactory jsonFactory;
+    private final KeywordAutomaton hideKeywords;
+    private final int depth;
+
+    public JsonMasker(JsonFactory jsonFactory, Collection<String> hideKeywords) {
+        this(jsonFactory, hideKeywords, DEFAULT_DEPTH);
+    }
+
+    public JsonMasker(JsonFactory jsonFactory, Collection<String> hideKeywords, int depth) {
+        this.jsonFactory = jsonFactory;
+        this.hideKeywords = new KeywordAutomaton((hideKeywords != null) ? hideKeywords : Collections.emptyList());
+        this.depth = depth;
+    }
+
+    public Optional<MaskedContent> mask(byte[] content) {
+        return mask(content, (content != null) ? content.length : 0, false);
+    }
+
+    /**
+     * When {@code truncated} is set the document is expected to end early; whatever was masked
+     * up to that point is returned instead of falling back to the raw content.
+     */
+    public Optional<MaskedContent> mask(byte[] content, int length, boolean truncated) {
+        return mask(content, length, truncated, null);
+    }
+
+    /**
+     * Bytes in a declared non-Unicode {@code charset} are decoded through it; anything else is left to Jackson's own
+     * UTF-8/16/32 detection, which reads the bytes directly.
+     */
+    public Optional<MaskedContent> mask(byte[] content, int length, boolean truncated, Charset charset) {
+        if (content == null || length == 0) {
+            return Optional.empty();
+        }
+
+        StringWriter writer = new StringWriter(length);
+        String code = null;
+        String message = null;
+        try (JsonParser parser = parser(content, length, charset);
+             JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            int objectDepth = 0;
+
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != null) {
+                    switch (token) {
+                        case START_OBJECT:
+                            objectDepth++;
+                            generator.copyCurrentEvent(parser);
+                            break;
+                        case END_OBJECT:
+                            objectDepth--;
+                            generator.copyCurrentEvent(parser);
+                            break;
+                        case START_ARRAY:
+                        case END_ARRAY:
+                        case FIELD_NAME:
+                        case VALUE_NULL:
+                            generator.copyCurrentEvent(parser);
+                            break;
+                        default:
+                            String field = fieldName(parser.getParsingContext());
+                            String value;
+                            if (field != null && objectDepth <= depth && hideKeywords.matches(field)) {
+                                value = MASK;
+                                generator.writeString(MASK);
+                            } else {
+                                value = null;
+                                generator.copyCurrentEvent(parser);
+                            }
+                            if (objectDepth == 1 && parser.getParsingContext().getParent().inRoot()) {
+                                if (CODE.equals(field)) {
+                                    code = (value != null) ? value : parser.getText();
+                                } else if (MESSAGE.equals(field)) {
+                                    message = (value != null) ? value : parser.getText();
+                                }
+                            }
+                    }
+                }
+            } catch (JsonParseException e) {
+                if (!truncated || generator.getOutputContext().inRoot() && generator.getOutputContext().getEntryCount() == 0) {
+                    return Optional.empty();
+                }
+            }
+
+            generator.flush();
+            return Optional.of(new MaskedContent(writer.toString(), code, message));
+        } catch (IOException ignored) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads only as far as the top level {@code code} field; nested values are skipped without being decoded.
+     */
+    public String peekCode(byte[] content, int length) {
+        return peekCode(content, length, null);
+    }
+
+    public String peekCode(byte[] content, int length, Charset charset) {
+        if (content == null || length == 0) {
+            return null;
+        }
+
+        try (JsonParser parser = parser(content, length, charset)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (CODE.equals(field) && token != null && token.isScalarValue()) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException ignored) {
+        }
+        return null;
+    }
+
+    private JsonParser parser(byte[] content, int length, Charset charset) throws IOException {
+        if (charset == null || charset == StandardCharsets.UTF_8 || charset == StandardCharsets.US_ASCII || charset.name().startsWith(UNICODE)) {
+            return jsonFactory.createParser(content, 0, length);
+        }
+        return jsonFactory.createParser(new InputStreamReader(new ByteArrayInputStream(content, 0, length), charset));
+    }
+
+    private String fieldName(JsonStreamContext context) {
+        while (context != null && context.inArray()) {
+            context = context.getParent();
+        }
+        return (context != null && context.inObject()) ? context.getCurrentName() : null;
+    }
+}
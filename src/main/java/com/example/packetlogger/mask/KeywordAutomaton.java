@@ -0,0 +1,154 @@
+package com.example.packetlogger.mask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton over all keywords, compiled once into a dense transition table.
+ * ASCII letters are folded to lower case; every other character outside the keywords shares class 0.
+ * The automaton is fed one character at a time across the whole text and never backtracks.
+ */
+class KeywordAutomaton {
+
+    static final int ROOT = 0;
+    static final int[] NONE = new int[0];
+
+    private final int[] asciiClasses = new int[128];
+    private final Map<Character, Integer> otherClasses = new HashMap<>();
+    private final int classCount;
+    private final int[] transitions;
+    private final int[][] lengths;
+
+    KeywordAutomaton(Collection<String> keywords) {
+        int classes = 1;
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = fold(keyword.charAt(i));
+                if (c < 128) {
+                    if (asciiClasses[c] == 0) {
+                        asciiClasses[c] = classes++;
+                    }
+                } else if (!otherClasses.containsKey(c)) {
+                    otherClasses.put(c, classes++);
+                }
+            }
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            asciiClasses[c] = asciiClasses[c + ('a' - 'A')];
+        }
+        this.classCount = classes;
+
+        List<int[]> trie = new ArrayList<>();
+        List<int[]> terminals = new ArrayList<>();
+        trie.add(new int[classCount]);
+        terminals.add(NONE);
+        for (String keyword : keywords) {
+            if (keyword.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                int c = classOf(keyword.charAt(i));
+                if (trie.get(state)[c] == 0) {
+                    trie.get(state)[c] = trie.size();
+                    trie.add(new int[classCount]);
+                    terminals.add(NONE);
+                }
+                state = trie.get(state)[c];
+            }
+            terminals.set(state, append(terminals.get(state), keyword.length()));
+        }
+
+        int states = trie.size();
+        this.transitions = new int[states * classCount];
+        this.lengths = new int[states][];
+        int[] fail = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        lengths[ROOT] = NONE;
+        for (int c = 0; c < classCount; c++) {
+            int child = trie.get(ROOT)[c];
+            transitions[c] = child;
+            if (child != 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] inherited = lengths[fail[state]];
+            int[] own = terminals.get(state);
+            lengths[state] = (inherited.length == 0) ? own : merge(own, inherited);
+            for (int c = 0; c < classCount; c++) {
+                int child = trie.get(state)[c];
+                if (child != 0) {
+                    fail[child] = transitions[fail[state] * classCount + c];
+                    transitions[state * classCount + c] = child;
+                    queue.add(child);
+                } else {
+                    transitions[state * classCount + c] = transitions[fail[state] * classCount + c];
+                }
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return transitions.length == classCount;
+    }
+
+    int next(int state, char c) {
+        return transitions[state * classCount + classOf(c)];
+    }
+
+    /**
+     * Whether {@code key} as a whole is one of the keywords, ignoring ASCII case.
+     */
+    boolean matches(String key) {
+        int state = ROOT;
+        for (int i = 0; i < key.length(); i++) {
+            state = next(state, key.charAt(i));
+        }
+        return matches(state, key.length());
+    }
+
+    /**
+     * Whether a keyword of exactly {@code length} characters ends at {@code state}.
+     */
+    boolean matches(int state, int length) {
+        for (int l : lengths[state]) {
+            if (l == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClasses[c];
+        }
+        Integer cls = otherClasses.get(c);
+        return (cls != null) ? cls : 0;
+    }
+
+    private static char fold(char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, values.length);
+        result[values.length] = value;
+        return result;
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.packetlogger.mask;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Masks {@code hideKeywords} values in text that is not JSON: form bodies, query strings, XML, header values and
+ * bodies that failed to parse as JSON.
+ * All keywords are compiled into one {@link KeywordAutomaton}, and each text is masked in a single forward scan
+ * without parsing it into a tree. Keys match whole and ignore ASCII case; text without a match is returned as is.
+ */
+public class KeywordMasker {
+
+    static final String MASK = JsonMasker.MASK;
+    static final String FORM_SEPARATORS = "&";
+    static final String HEADER_SEPARATORS = "&;, ";
+    static final String TEXT_SEPARATORS = "&;,{}[]<>";
+    static final String CDATA = "<![CDATA[";
+    static final String CDATA_END = "]]>";
+
+    private final KeywordAutomaton automaton;
+
+    public KeywordMasker(Collection<String> hideKeywords) {
+        this.automaton = new KeywordAutomaton((hideKeywords != null) ? hideKeywords : Collections.emptyList());
+    }
+
+    public boolean isEmpty() {
+        return automaton.isEmpty();
+    }
+
+    public String mask(String text, BodyFormat format) {
+        if (text == null || automaton.isEmpty()) {
+            return text;
+        }
+        switch (format) {
+            case FORM:
+                return maskPairs(text, FORM_SEPARATORS);
+            case XML:
+                return maskXml(text);
+            case TEXT:
+                return maskText(text);
+            default:
+                return text;
+        }
+    }
+
+    public String maskQuery(String query) {
+        return (query != null && !automaton.isEmpty()) ? maskPairs(query, FORM_SEPARATORS) : query;
+    }
+
+    /**
+     * Only the query part of a URL is scanned.
+     */
+    public String maskUrl(String url) {
+        int query = (url != null && !automaton.isEmpty()) ? url.indexOf('?') : -1;
+        if (query < 0) {
+            return url;
+        }
+        String masked = maskPairs(url.substring(query + 1), FORM_SEPARATORS);
+        return url.substring(0, query + 1) + masked;
+    }
+
+    /**
+     * A header named like a keyword is masked whole; any other value has its {@code key=value} parameters scanned,
+     * which covers cookies and similar lists.
+     */
+    public Map<String, Object> maskHeaders(Map<String, Object> headers) {
+        if (headers == null || headers.isEmpty() || automaton.isEmpty()) {
+            return headers;
+        }
+        Map<String, Object> masked = new HashMap<>(headers.size() * 2);
+        for (Map.Entry<String, Object> entry : headers.entrySet()) {
+            Object value = entry.getValue();
+            if (value != null && automaton.matches(entry.getKey())) {
+                value = MASK;
+            } else if (value instanceof String) {
+                value = maskPairs((String) value, HEADER_SEPARATORS);
+            }
+            masked.put(entry.getKey(), value);
+        }
+        return masked;
+    }
+
+    private String maskPairs(String text, String separators) {
+        StringBuilder out = null;
+        int copied = 0;
+        int state = KeywordAutomaton.ROOT;
+        int keyStart = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (separators.indexOf(c) >= 0) {
+                state = KeywordAutomaton.ROOT;
+                keyStart = ++i;
+                continue;
+            }
+            if (c != '=') {
+                state = automaton.next(state, c);
+                i++;
+                continue;
+            }
+
+            int end = i + 1;
+            while (end < length && separators.indexOf(text.charAt(end)) < 0) {
+                end++;
+            }
+            if (end > i + 1 && automaton.matches(state, i - keyStart)) {
+                if (out == null) {
+                    out = new StringBuilder(length);
+                }
+                out.append(text, copied, i + 1).append(MASK);
+                copied = end;
+            }
+            i = end;
+        }
+        return (out != null) ? out.append(text, copied, length).toString() : text;
+    }
+
+    /**
+     * Masks the text of elements and the values of attributes named like a keyword; a namespace prefix is ignored.
+     */
+    private String maskXml(String text) {
+        StringBuilder out = null;
+        int copied = 0;
+        int length = text.length();
+        int i = text.indexOf('<');
+        while (i >= 0 && i < length - 1) {
+            char first = text.charAt(i + 1);
+            if (first == '/' || first == '?' || first == '!') {
+                i = text.indexOf('<', i + 1);
+                continue;
+            }
+
+            int state = KeywordAutomaton.ROOT;
+            int nameStart = i + 1;
+            int j = nameStart;
+            while (j < length && !isNameEnd(text.charAt(j))) {
+                char c = text.charAt(j++);
+                if (c == ':') {
+                    state = KeywordAutomaton.ROOT;
+                    nameStart = j;
+                } else {
+                    state = automaton.next(state, c);
+                }
+            }
+            boolean element = automaton.matches(state, j - nameStart);
+
+            while (j < length && text.charAt(j) != '>') {
+                char c = text.charAt(j);
+                if (c == '"' || c == '\'') {
+                    int close = text.indexOf(c, j + 1);
+                    j = (close < 0) ? length : close + 1;
+                    continue;
+                }
+                if (c == '/' || Character.isWhitespace(c)) {
+                    j++;
+                    continue;
+                }
+
+                state = KeywordAutomaton.ROOT;
+                nameStart = j;
+                while (j < length && !isNameEnd(c = text.charAt(j))) {
+                    j++;
+                    if (c == ':') {
+                        state = KeywordAutomaton.ROOT;
+                        nameStart = j;
+                    } else {
+                        state = automaton.next(state, c);
+                    }
+                }
+                boolean attribute = automaton.matches(state, j - nameStart);
+                while (j < length && Character.isWhitespace(text.charAt(j))) {
+                    j++;
+                }
+                if (j >= length || text.charAt(j) != '=') {
+                    continue;
+                }
+                j++;
+                while (j < length && Character.isWhitespace(text.charAt(j))) {
+                    j++;
+                }
+                if (j >= length || (text.charAt(j) != '"' && text.charAt(j) != '\'')) {
+                    continue;
+                }
+                int close = text.indexOf(text.charAt(j), j + 1);
+                if (close < 0) {
+                    close = length;
+                }
+                if (attribute && close > j + 1) {
+                    if (out == null) {
+                        out = new StringBuilder(length);
+                    }
+                    out.append(text, copied, j + 1).append(MASK);
+                    copied = close;
+                }
+                j = Math.min(close + 1, length);
+            }
+            if (j >= length) {
+                break;
+            }
+
+            boolean selfClosing = text.charAt(j - 1) == '/';
+            j++;
+            if (element && !selfClosing) {
+                int close = text.startsWith(CDATA, j) ? text.indexOf(CDATA_END, j) : j;
+                close = (close < 0) ? length : text.indexOf('<', close);
+                if (close < 0) {
+                    close = length;
+                }
+                if (close > j) {
+                    if (out == null) {
+                        out = new StringBuilder(length);
+                    }
+                    out.append(text, copied, j).append(MASK);
+                    copied = close;
+                }
+                j = close;
+            }
+            i = text.indexOf('<', j);
+        }
+        return (out != null) ? out.append(text, copied, length).toString() : text;
+    }
+
+    /**
+     * Masks {@code key=value} and {@code "key": "value"} pairs wherever they appear, for bodies that are neither form
+     * nor XML and did not parse as JSON. A quoted value runs to its closing quote, any other value to the next
+     * separator or whitespace.
+     */
+    private String maskText(String text) {
+        StringBuilder out = null;
+        int copied = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (!isWordPart(text.charAt(i))) {
+                i++;
+                continue;
+            }
+
+            int state = KeywordAutomaton.ROOT;
+            int keyStart = i;
+            while (i < length && isWordPart(text.charAt(i))) {
+                state = automaton.next(state, text.charAt(i++));
+            }
+            if (!automaton.matches(state, i - keyStart)) {
+                continue;
+            }
+
+            int j = i;
+            if (j < length && (text.charAt(j) == '"' || text.charAt(j) == '\'')) {
+                j++;
+            }
+            while (j < length && Character.isWhitespace(text.charAt(j))) {
+                j++;
+            }
+            if (j >= length || (text.charAt(j) != '=' && text.charAt(j) != ':')) {
+                continue;
+            }
+            j++;
+            while (j < length && Character.isWhitespace(text.charAt(j))) {
+                j++;
+            }
+
+            int start = j;
+            int end;
+            if (j < length && (text.charAt(j) == '"' || text.charAt(j) == '\'')) {
+                start = j + 1;
+                end = text.indexOf(text.charAt(j), start);
+                if (end < 0) {
+                    end = length;
+                }
+            } else {
+                end = j;
+                while (end < length && TEXT_SEPARATORS.indexOf(text.charAt(end)) < 0 && !Character.isWhitespace(text.charAt(end))) {
+                    end++;
+                }
+            }
+            if (end > start) {
+                if (out == null) {
+                    out = new StringBuilder(length);
+                }
+                out.append(text, copied, start).append(MASK);
+                copied = end;
+            }
+            i = end;
+        }
+        return (out != null) ? out.append(text, copied, length).toString() : text;
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+    }
+
+    private static boolean isNameEnd(char c) {
+        return c == '>' || c == '/' || c == '=' || Character.isWhitespace(c);
+    }
+}
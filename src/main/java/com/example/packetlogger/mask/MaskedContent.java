@@ -0,0 +1,12 @@
+package com.example.packetlogger.mask;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class MaskedContent {
+    private final String content;
+    private final String code;
+    private final String message;
+}
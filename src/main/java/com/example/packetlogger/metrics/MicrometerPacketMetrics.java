@@ -0,0 +1,120 @@
+package com.example.packetlogger.metrics;
+
+import com.example.packetlogger.dedup.BodyCache;
+import com.example.packetlogger.sampling.PacketSampler;
+import com.example.packetlogger.sampling.RouteSampler;
+import com.example.packetlogger.sink.PacketSink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class MicrometerPacketMetrics implements PacketMetrics {
+
+    static final String PREFIX = "packet.logger";
+    static final String ROUTE = "route";
+    static final String STAGE = "stage";
+    static final String RESULT = "result";
+    static final String BYTES = "bytes";
+
+    private final MeterRegistry registry;
+    private final Counter rejected;
+    private final Map<String, RouteMeters> routes = new ConcurrentHashMap<>();
+
+    public MicrometerPacketMetrics(MeterRegistry registry, PacketSink packetSink, PacketSampler packetSampler, BodyCache bodyCache) {
+        this.registry = registry;
+
+        FunctionCounter.builder(PREFIX + ".sink.dropped", packetSink, PacketSink::getDroppedCount)
+                .description("Records dropped by the sink")
+                .register(registry);
+        Gauge.builder(PREFIX + ".sink.queue", packetSink, PacketSink::getQueueDepth)
+                .description("Records waiting in the sink queue")
+                .register(registry);
+        this.rejected = Counter.builder(PREFIX + ".dispatcher.rejected")
+                .description("Records dropped because no worker could take them")
+                .register(registry);
+
+        for (RouteSampler sampler : packetSampler.getRoutes().values()) {
+            FunctionCounter.builder(PREFIX + ".sampling", sampler, RouteSampler::getKeptCount)
+                    .tag(ROUTE, sampler.getPattern())
+                    .tag(RESULT, "kept")
+                    .register(registry);
+            FunctionCounter.builder(PREFIX + ".sampling", sampler, RouteSampler::getDroppedCount)
+                    .tag(ROUTE, sampler.getPattern())
+                    .tag(RESULT, "dropped")
+                    .register(registry);
+        }
+
+        if (bodyCache.isEnabled()) {
+            FunctionCounter.builder(PREFIX + ".dedup", bodyCache, BodyCache::getHitCount)
+                    .description("Response bodies logged by hash only")
+                    .tag(RESULT, "hit")
+                    .register(registry);
+            FunctionCounter.builder(PREFIX + ".dedup", bodyCache, BodyCache::getMissCount)
+                    .description("Response bodies logged in full")
+                    .tag(RESULT, "miss")
+                    .register(registry);
+            Gauge.builder(PREFIX + ".dedup.entries", bodyCache, BodyCache::size)
+                    .description("Body fingerprints held for deduplication")
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public void recordStage(Stage stage, String route, long nanos) {
+        meters(route).stages[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordCaptured(String route, long bytes) {
+        meters(route).captured.record(bytes);
+    }
+
+    @Override
+    public void recordEmitted(String route, long bytes) {
+        meters(route).emitted.record(bytes);
+    }
+
+    @Override
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    private RouteMeters meters(String route) {
+        RouteMeters meters = routes.get(route);
+        return (meters != null) ? meters : routes.computeIfAbsent(route, RouteMeters::new);
+    }
+
+    private class RouteMeters {
+        private final Timer[] stages = new Timer[Stage.values().length];
+        private final DistributionSummary captured;
+        private final DistributionSummary emitted;
+
+        RouteMeters(String route) {
+            for (Stage stage : Stage.values()) {
+                stages[stage.ordinal()] = Timer.builder(PREFIX + ".stage")
+                        .description("Time spent by the packet logger per stage")
+                        .tag(ROUTE, route)
+                        .tag(STAGE, stage.name().toLowerCase(Locale.ROOT))
+                        .register(registry);
+            }
+            this.captured = DistributionSummary.builder(PREFIX + ".captured")
+                    .description("Body bytes captured for logging")
+                    .baseUnit(BYTES)
+                    .tag(ROUTE, route)
+                    .register(registry);
+            this.emitted = DistributionSummary.builder(PREFIX + ".emitted")
+                    .description("Record bytes handed to the sink")
+                    .baseUnit(BYTES)
+                    .tag(ROUTE, route)
+                    .register(registry);
+        }
+    }
+}
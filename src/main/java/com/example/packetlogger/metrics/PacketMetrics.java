@@ -0,0 +1,41 @@
+package com.example.packetlogger.metrics;
+
+import com.example.packetlogger.filter.PacketDto;
+
+public interface PacketMetrics {
+
+    PacketMetrics NOOP = new PacketMetrics() {
+    };
+
+    String UNMATCHED = "unmatched";
+
+    default void recordStage(Stage stage, String route, long nanos) {
+    }
+
+    default void recordCaptured(String route, long bytes) {
+    }
+
+    default void recordEmitted(String route, long bytes) {
+    }
+
+    /**
+     * A record dropped because the worker pool or scheduler had no room for it.
+     */
+    default void recordRejected() {
+    }
+
+    /**
+     * Paths that matched no {@code registerPattern} share one tag value so raw paths never become tags.
+     */
+    static String route(PacketDto.PatternMap patternMap) {
+        return (patternMap.getParam() != null) ? patternMap.getPattern() : UNMATCHED;
+    }
+
+    enum Stage {
+        CAPTURE,
+        MASK,
+        BUILD,
+        SERIALIZE,
+        SINK
+    }
+}
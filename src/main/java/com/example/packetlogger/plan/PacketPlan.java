@@ -0,0 +1,178 @@
+package com.example.packetlogger.plan;
+
+import com.example.packetlogger.capture.CaptureRules;
+import com.example.packetlogger.capture.TailPolicy;
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.filter.PacketEncoder;
+import com.example.packetlogger.mask.JsonMasker;
+import com.example.packetlogger.mask.KeywordMasker;
+import com.example.packetlogger.route.RouteTrie;
+import com.fasterxml.jackson.core.JsonFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Everything the request path reads from {@link BaseProperties.PacketLogger}, compiled once and never mutated.
+ * A new plan replaces the old one as a whole, so a request always sees one consistent configuration.
+ */
+public class PacketPlan {
+
+    static final String[] NO_HEADERS = new String[0];
+
+    private final BaseProperties.PacketLogger options;
+    private final Set<String> dropEvents;
+    private final Pattern[] dropGlobs;
+    private final String[] sendHeaders;
+    private final String[] receiveHeaders;
+    private final RouteTrie routeTrie;
+    private final CaptureRules captureRules;
+    private final TailPolicy tailPolicy;
+    private final JsonMasker jsonMasker;
+    private final KeywordMasker keywordMasker;
+    private final PacketEncoder packetEncoder;
+
+    public PacketPlan(BaseProperties.PacketLogger options, RouteTrie routeTrie, CaptureRules captureRules, TailPolicy tailPolicy,
+                      JsonMasker jsonMasker, KeywordMasker keywordMasker, PacketEncoder packetEncoder) {
+        this.options = options;
+        List<String> dropEvent = Optional.ofNullable(options.getDropEvent()).orElse(Collections.emptyList());
+        Set<String> exact = new HashSet<>();
+        List<Pattern> globs = new ArrayList<>();
+        for (String path : dropEvent) {
+            if (path.indexOf('*') >= 0 || path.indexOf('?') >= 0) {
+                globs.add(glob(path));
+            } else {
+                exact.add(path);
+            }
+        }
+        this.dropEvents = Set.copyOf(exact);
+        this.dropGlobs = globs.toArray(new Pattern[0]);
+        this.sendHeaders = headers(options.getSendHeaders());
+        this.receiveHeaders = headers(options.getReceiveHeaders());
+        this.routeTrie = routeTrie;
+        this.captureRules = captureRules;
+        this.tailPolicy = tailPolicy;
+        this.jsonMasker = jsonMasker;
+        this.keywordMasker = keywordMasker;
+        this.packetEncoder = packetEncoder;
+    }
+
+    /**
+     * @param jsonFactory   parses captured JSON bodies
+     * @param recordFactory writes records in the configured {@link com.example.packetlogger.format.RecordFormat}
+     */
+    public static PacketPlan compile(BaseProperties.PacketLogger options, JsonFactory jsonFactory, JsonFactory recordFactory) {
+        return new PacketPlan(
+                options,
+                RouteTrie.of(options),
+                CaptureRules.of(options),
+                TailPolicy.of(options),
+                new JsonMasker(jsonFactory, options.getHideKeywords()),
+                new KeywordMasker(options.getHideKeywords()),
+                new PacketEncoder(recordFactory, options));
+    }
+
+    /**
+     * Exact paths are a set lookup; paths with {@code *}, {@code **} or {@code ?} are matched as globs only when no exact path hit.
+     */
+    public boolean isDropEvent(String path) {
+        if (path == null) {
+            return false;
+        }
+        if (dropEvents.contains(path)) {
+            return true;
+        }
+        for (Pattern glob : dropGlobs) {
+            if (glob.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public BaseProperties.PacketLogger getOptions() {
+        return options;
+    }
+
+    /**
+     * Lower-cased, so the names logged do not depend on how they were configured.
+     */
+    public String[] getSendHeaders() {
+        return sendHeaders;
+    }
+
+    public String[] getReceiveHeaders() {
+        return receiveHeaders;
+    }
+
+    public RouteTrie getRouteTrie() {
+        return routeTrie;
+    }
+
+    public CaptureRules getCaptureRules() {
+        return captureRules;
+    }
+
+    public TailPolicy getTailPolicy() {
+        return tailPolicy;
+    }
+
+    public JsonMasker getJsonMasker() {
+        return jsonMasker;
+    }
+
+    public KeywordMasker getKeywordMasker() {
+        return keywordMasker;
+    }
+
+    public PacketEncoder getPacketEncoder() {
+        return packetEncoder;
+    }
+
+    private static String[] headers(Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return NO_HEADERS;
+        }
+        return names.stream()
+                .map(h -> h.trim().toLowerCase(Locale.ROOT))
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    /**
+     * {@code **} crosses path segments, {@code *} and {@code ?} stay within one.
+     */
+    private static Pattern glob(String path) {
+        StringBuilder regex = new StringBuilder();
+        int literal = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c != '*' && c != '?') {
+                continue;
+            }
+            if (i > literal) {
+                regex.append(Pattern.quote(path.substring(literal, i)));
+            }
+            if (c == '?') {
+                regex.append("[^/]");
+            } else if (i + 1 < path.length() && path.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else {
+                regex.append("[^/]*");
+            }
+            literal = i + 1;
+        }
+        if (literal < path.length()) {
+            regex.append(Pattern.quote(path.substring(literal)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
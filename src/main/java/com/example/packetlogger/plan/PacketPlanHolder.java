@@ -0,0 +1,36 @@
+package com.example.packetlogger.plan;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.format.RecordFormats;
+import com.fasterxml.jackson.core.JsonFactory;
+
+/**
+ * The current {@link PacketPlan}. Readers take it once per request with {@link #get}; {@link #reload} compiles a
+ * replacement off the request path and publishes it with a single volatile write.
+ * The record format stays the one the sink was started with.
+ */
+public class PacketPlanHolder {
+
+    private final JsonFactory jsonFactory;
+    private final JsonFactory recordFactory;
+    private volatile PacketPlan plan;
+
+    public PacketPlanHolder(PacketPlan plan, JsonFactory jsonFactory, JsonFactory recordFactory) {
+        this.plan = plan;
+        this.jsonFactory = jsonFactory;
+        this.recordFactory = recordFactory;
+    }
+
+    public static PacketPlanHolder of(BaseProperties.PacketLogger options, JsonFactory jsonFactory) {
+        JsonFactory recordFactory = RecordFormats.factory(options.getFormat(), jsonFactory);
+        return new PacketPlanHolder(PacketPlan.compile(options, jsonFactory, recordFactory), jsonFactory, recordFactory);
+    }
+
+    public PacketPlan get() {
+        return plan;
+    }
+
+    public void reload(BaseProperties.PacketLogger options) {
+        plan = PacketPlan.compile(options, jsonFactory, recordFactory);
+    }
+}
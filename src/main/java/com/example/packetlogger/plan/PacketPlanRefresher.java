@@ -0,0 +1,48 @@
+package com.example.packetlogger.plan;
+
+import com.example.packetlogger.config.BaseProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+
+import java.util.Locale;
+
+/**
+ * Rebinds {@code packet-logger.*} when Spring Cloud reports changed keys (a refresh, a config server push)
+ * and swaps in a newly compiled {@link PacketPlan}. A configuration that fails to bind leaves the current plan in place.
+ */
+public class PacketPlanRefresher implements ApplicationListener<EnvironmentChangeEvent> {
+
+    static final String PREFIX = "packet-logger";
+    static final String NORMALIZED_PREFIX = "packetlogger";
+
+    private final Environment environment;
+    private final PacketPlanHolder packetPlans;
+
+    public PacketPlanRefresher(Environment environment, PacketPlanHolder packetPlans) {
+        this.environment = environment;
+        this.packetPlans = packetPlans;
+    }
+
+    @Override
+    public void onApplicationEvent(EnvironmentChangeEvent event) {
+        if (event.getKeys().stream().noneMatch(PacketPlanRefresher::isPacketLoggerKey)) {
+            return;
+        }
+        try {
+            Binder.get(environment)
+                    .bind(PREFIX, BaseProperties.PacketLogger.class)
+                    .ifBound(packetPlans::reload);
+        } catch (Exception e) {
+        }
+    }
+
+    /**
+     * Keys arrive in whatever form their source used, {@code packet-logger.x}, {@code packetLogger.x} or {@code PACKET_LOGGER_X}.
+     */
+    private static boolean isPacketLoggerKey(String key) {
+        String normalized = key.replace("-", "").replace("_", "").toLowerCase(Locale.ROOT);
+        return normalized.startsWith(NORMALIZED_PREFIX);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.packetlogger.reactive;
+
+import com.example.packetlogger.capture.BodyCapture;
+import com.example.packetlogger.capture.BufferPool;
+import com.example.packetlogger.capture.CapturedBody;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Taps a {@code Flux<DataBuffer>} by keeping retained slices of the passing buffers until {@code limit} bytes are held.
+ * Nothing is copied on the event loop; the slices are read into a pooled array and released once the record is built.
+ */
+public class DataBufferCapture implements BodyCapture {
+
+    private final int limit;
+    private final BufferPool bufferPool;
+    private final List<DataBuffer> slices = new ArrayList<>();
+    private boolean enabled;
+    private boolean released;
+    private int count;
+    private long total;
+
+    public DataBufferCapture(int limit, boolean enabled) {
+        this(limit, enabled, BufferPool.NONE);
+    }
+
+    public DataBufferCapture(int limit, boolean enabled, BufferPool bufferPool) {
+        this.limit = Math.max(limit, 0);
+        this.enabled = enabled;
+        this.bufferPool = bufferPool;
+    }
+
+    public synchronized void capture(DataBuffer buffer) {
+        int readable = buffer.readableByteCount();
+        total += readable;
+        if (enabled && !released && count < limit && readable > 0) {
+            int length = Math.min(readable, limit - count);
+            slices.add(buffer.retainedSlice(buffer.readPosition(), length));
+            count += length;
+        }
+    }
+
+    public synchronized void disable() {
+        enabled = false;
+    }
+
+    public synchronized byte[] toByteArray() {
+        return read(new byte[count]);
+    }
+
+    @Override
+    public synchronized CapturedBody detach(Charset charset) {
+        byte[] bytes = read((count > 0) ? bufferPool.acquire(count) : new byte[0]);
+        CapturedBody body = new CapturedBody(bytes, count, total, isTruncated(), charset, bufferPool);
+        release();
+        return body;
+    }
+
+    @Override
+    public synchronized void release() {
+        released = true;
+        slices.forEach(DataBufferUtils::release);
+        slices.clear();
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    @Override
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    public synchronized boolean isTruncated() {
+        return total > count;
+    }
+
+    private byte[] read(byte[] bytes) {
+        int position = 0;
+        for (DataBuffer slice : slices) {
+            int length = slice.readableByteCount();
+            slice.read(bytes, position, length);
+            position += length;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.packetlogger.reactive;
+
+import com.example.packetlogger.aggregate.PacketAggregator;
+import com.example.packetlogger.aggregate.RouteAggregate;
+import com.example.packetlogger.capture.CaptureRules;
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.egress.EgressRecorder;
+import com.example.packetlogger.filter.PacketAssembler;
+import com.example.packetlogger.filter.PacketDto;
+import com.example.packetlogger.filter.PacketSnapshot;
+import com.example.packetlogger.metrics.PacketMetrics;
+import com.example.packetlogger.plan.PacketPlan;
+import com.example.packetlogger.plan.PacketPlanHolder;
+import com.example.packetlogger.sampling.PacketSampler;
+import com.example.packetlogger.sampling.RouteSampler;
+import lombok.RequiredArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * WebFlux counterpart of {@link com.example.packetlogger.filter.LoggerFilter} producing the same {@link PacketDto} schema.
+ * The event loop only retains buffer slices and takes a {@link PacketSnapshot}; the {@link PacketAssembler} runs on a bounded scheduler.
+ */
+@RequiredArgsConstructor
+public class ReactiveLoggerFilter implements WebFilter, Ordered, DisposableBean {
+
+    static final int ORDER = 99;
+    static final String FORWARDED_FOR = "x-forwarded-for";
+    static final String B3_TRACE_ID = "x-b3-traceid";
+    static final String REFERRER = "referer";
+    static final String SCHEDULER_NAME = "packet-logger";
+    static final int DEFAULT_THREADS = 2;
+    static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    private final PacketPlanHolder packetPlans;
+    private final PacketSampler packetSampler;
+    private final PacketAssembler packetAssembler;
+    private final PacketAggregator packetAggregator;
+    private final PacketMetrics packetMetrics;
+    private final Scheduler scheduler;
+
+    public static Scheduler scheduler(BaseProperties.PacketLogger options) {
+        Optional<BaseProperties.Reactive> reactive = Optional.ofNullable(options.getReactive());
+        return Schedulers.newBoundedElastic(
+                reactive.map(BaseProperties.Reactive::getThreads).orElse(DEFAULT_THREADS),
+                reactive.map(BaseProperties.Reactive::getQueueCapacity).orElse(DEFAULT_QUEUE_CAPACITY),
+                SCHEDULER_NAME,
+                60,
+                true);
+    }
+
+    /**
+     * The trace id is the incoming one, else a new one; the record of the request carries it, and outgoing WebClient calls
+     * made while serving the request read it from the reactor context.
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String header = exchange.getRequest().getHeaders().getFirst(B3_TRACE_ID);
+        String traceId = (header != null) ? header : EgressRecorder.newTraceId();
+        return record(exchange, chain, traceId).contextWrite(Context.of(EgressRecorder.TRACE_ID_ATTRIBUTE, traceId));
+    }
+
+    private Mono<Void> record(ServerWebExchange exchange, WebFilterChain chain, String traceId) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().pathWithinApplication().value();
+        PacketPlan plan = packetPlans.get();
+        if (plan.isDropEvent(path)) {
+            return chain.filter(exchange);
+        }
+
+        PacketDto.PatternMap patternMap = plan.getRouteTrie().match(path);
+        RouteAggregate aggregate = packetAggregator.route(patternMap.getPattern());
+        if (aggregate != null) {
+            // a zero-limit capture keeps no slices, only the count of bytes written, which chunked and streamed
+            // responses have no Content-Length for
+            long startNanos = System.nanoTime();
+            DataBufferCapture counter = new DataBufferCapture(0, false);
+            ServerHttpResponse response = capturingResponse(exchange.getResponse(), plan.getCaptureRules(), counter);
+            return chain.filter(exchange.mutate().response(response).build())
+                    .doFinally(signal -> aggregate.record(status(response), System.nanoTime() - startNanos,
+                            request.getHeaders().getContentLength(),
+                            Math.max(counter.getTotal(), response.getHeaders().getContentLength())));
+        }
+
+        RouteSampler sampler = packetSampler.route(patternMap.getPattern());
+        boolean sampled = sampler == null || sampler.sample();
+        if (!sampled && !sampler.isRescuable()) {
+            return chain.filter(exchange);
+        }
+
+        LocalDateTime start = LocalDateTime.now();
+        long startNanos = System.nanoTime();
+        if (!sampled) {
+            return chain.filter(exchange)
+                    .doFinally(signal -> {
+                        ServerHttpResponse response = exchange.getResponse();
+                        if (sampler.keep(status(response), System.nanoTime() - startNanos)) {
+                            emit(exchange.getRequest(), response, plan, start, startNanos, patternMap, traceId, null, null);
+                        }
+                    });
+        }
+
+        CaptureRules captureRules = plan.getCaptureRules();
+        DataBufferCapture requestCapture = new DataBufferCapture(captureRules.getRequestLimit(), captureRules.isCaptured(request.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE)), captureRules.getBufferPool());
+        DataBufferCapture responseCapture = new DataBufferCapture(captureRules.getResponseLimit(), true, captureRules.getBufferPool());
+        ServerWebExchange decorated = exchange.mutate()
+                .request(capturingRequest(request, requestCapture))
+                .response(capturingResponse(exchange.getResponse(), captureRules, responseCapture))
+                .build();
+
+        return chain.filter(decorated)
+                .doFinally(signal -> emit(decorated.getRequest(), decorated.getResponse(), plan, start, startNanos, patternMap, traceId, requestCapture, responseCapture));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    private ServerHttpRequest capturingRequest(ServerHttpRequest request, DataBufferCapture capture) {
+        return new ServerHttpRequestDecorator(request) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return super.getBody().doOnNext(capture::capture);
+            }
+        };
+    }
+
+    private ServerHttpResponse capturingResponse(ServerHttpResponse response, CaptureRules captureRules, DataBufferCapture capture) {
+        return new ServerHttpResponseDecorator(response) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                decide();
+                return super.writeWith(Flux.<DataBuffer>from(body).doOnNext(capture::capture));
+            }
+
+            @Override
+            public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                decide();
+                return super.writeAndFlushWith(Flux.<Publisher<? extends DataBuffer>>from(body)
+                        .map(p -> Flux.<DataBuffer>from(p).doOnNext(capture::capture)));
+            }
+
+            private void decide() {
+                if (!captureRules.isCaptured(getHeaders().getFirst(HttpHeaders.CONTENT_TYPE))) {
+                    capture.disable();
+                }
+            }
+        };
+    }
+
+    private void emit(ServerHttpRequest request, ServerHttpResponse response, PacketPlan plan, LocalDateTime start, long startNanos, PacketDto.PatternMap patternMap, String traceId, DataBufferCapture requestCapture, DataBufferCapture responseCapture) {
+        PacketSnapshot.PacketSnapshotBuilder snapshot;
+        boolean attach;
+        try {
+            snapshot = snapshot(request, response, plan, start, startNanos, patternMap, traceId);
+            attach = requestCapture != null && snapshot.keepsBodies(plan.getTailPolicy(), requestCapture, responseCapture);
+        } catch (Exception e) {
+            release(requestCapture, responseCapture);
+            return;
+        }
+
+        Charset requestCharset = CaptureRules.charset(request.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        Charset responseCharset = CaptureRules.charset(response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        try {
+            scheduler.schedule(() -> {
+                try {
+                    packetAssembler.emit((attach ? snapshot.detach(requestCapture, requestCharset, responseCapture, responseCharset) : snapshot).build());
+                } catch (Exception e) {
+                } finally {
+                    release(requestCapture, responseCapture);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            packetMetrics.recordRejected();
+            release(requestCapture, responseCapture);
+        }
+    }
+
+    private void release(DataBufferCapture requestCapture, DataBufferCapture responseCapture) {
+        if (requestCapture != null) {
+            requestCapture.release();
+        }
+        if (responseCapture != null) {
+            responseCapture.release();
+        }
+    }
+
+    /**
+     * Header values and timings are copied on the event loop; the body slices are only read on the scheduler.
+     */
+    private PacketSnapshot.PacketSnapshotBuilder snapshot(ServerHttpRequest request, ServerHttpResponse response, PacketPlan plan, LocalDateTime start, long startNanos, PacketDto.PatternMap patternMap, String traceId) {
+        HttpHeaders requestHeaders = request.getHeaders();
+        HttpHeaders responseHeaders = response.getHeaders();
+        Map<String, Object> sendHeaders = new HashMap<>();
+        for (String header : plan.getSendHeaders()) {
+            sendHeaders.put(header, requestHeaders.getFirst(header));
+        }
+        Map<String, Object> receiveHeaders = new HashMap<>();
+        for (String header : plan.getReceiveHeaders()) {
+            receiveHeaders.put(header, responseHeaders.getFirst(header));
+        }
+
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String uri = request.getURI().toString();
+        int query = uri.indexOf('?');
+
+        return PacketSnapshot.builder()
+                .start(start)
+                .end(LocalDateTime.now())
+                .duration(System.nanoTime() - startNanos)
+                .method(request.getMethodValue())
+                .path(request.getPath().pathWithinApplication().value())
+                .url((query < 0) ? uri : uri.substring(0, query))
+                .queryString(request.getURI().getRawQuery())
+                .remoteAddr((remoteAddress != null && remoteAddress.getAddress() != null) ? remoteAddress.getAddress().getHostAddress() : null)
+                .remotePort((remoteAddress != null) ? remoteAddress.getPort() : 0)
+                .serverName(request.getURI().getHost())
+                .forwardedFor(requestHeaders.getFirst(FORWARDED_FOR))
+                .userAgent(requestHeaders.getFirst(HttpHeaders.USER_AGENT))
+                .referrer(requestHeaders.getFirst(REFERRER))
+                .transactionId(traceId)
+                .requestContentLength(requestHeaders.getContentLength())
+                .responseContentLength(responseHeaders.getContentLength())
+                .requestHeaders(sendHeaders)
+                .responseHeaders(receiveHeaders)
+                .requestContentType(requestHeaders.getFirst(HttpHeaders.CONTENT_TYPE))
+                .responseContentType(responseHeaders.getFirst(HttpHeaders.CONTENT_TYPE))
+                .status(status(response))
+                .patternMap(patternMap);
+    }
+
+    private int status(ServerHttpResponse response) {
+        Integer status = response.getRawStatusCode();
+        return (status != null) ? status : 200;
+    }
+}
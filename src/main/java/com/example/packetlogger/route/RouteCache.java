@@ -0,0 +1,60 @@
+package com.example.packetlogger.route;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Striped LRU cache. Each stripe is an access ordered {@link LinkedHashMap} guarded by its own monitor,
+ * so hot paths hashing to different stripes do not contend.
+ */
+public class RouteCache<V> {
+
+    static final int STRIPES = 16;
+
+    private final Stripe<V>[] stripes;
+
+    public RouteCache(int maximumSize) {
+        int stripeSize = Math.max(maximumSize / STRIPES, 1);
+        @SuppressWarnings("unchecked")
+        Stripe<V>[] stripes = (Stripe<V>[]) new Stripe<?>[STRIPES];
+        this.stripes = stripes;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>(stripeSize);
+        }
+    }
+
+    public V get(String key) {
+        Stripe<V> stripe = stripe(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    public void put(String key, V value) {
+        Stripe<V> stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    private Stripe<V> stripe(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static class Stripe<V> extends LinkedHashMap<String, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        Stripe(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > maximumSize;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.packetlogger.route;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.filter.PacketDto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@code registerPattern} compiled into a segment trie. Each node has literal children and one {@code :param} child;
+ * literals are tried first so the most specific pattern wins, then patterns registered earlier win.
+ * Misses are cached like matches, so a repeated path allocates nothing either way. Since one instance is handed to every
+ * request on that path, the returned {@link PacketDto.PatternMap} rejects its setters.
+ */
+public class RouteTrie {
+
+    static final char SEPARATOR = '/';
+    static final char PARAM_PREFIX = ':';
+    static final int DEFAULT_CACHE_SIZE = 1024;
+    static final PacketDto.PatternMap NO_PATH = new FrozenPatternMap(null, null);
+
+    private final Node root = new Node();
+    private final RouteCache<PacketDto.PatternMap> cache;
+
+    public RouteTrie(Collection<String> patterns, int cacheSize) {
+        for (String pattern : patterns) {
+            register(pattern);
+        }
+        root.freeze();
+        this.cache = (cacheSize > 0) ? new RouteCache<>(cacheSize) : null;
+    }
+
+    public static RouteTrie of(BaseProperties.PacketLogger options) {
+        return new RouteTrie(
+                Optional.ofNullable(options.getRegisterPattern()).orElse(Collections.emptyList()),
+                Optional.ofNullable(options.getRoute()).map(BaseProperties.Route::getCacheSize).orElse(DEFAULT_CACHE_SIZE));
+    }
+
+    public PacketDto.PatternMap match(String path) {
+        if (path == null) {
+            return NO_PATH;
+        }
+        if (cache != null) {
+            PacketDto.PatternMap cached = cache.get(path);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Route route = find(root, path, 0, trimmedEnd(path));
+        PacketDto.PatternMap patternMap = (route != null)
+                ? new FrozenPatternMap(route.pattern, route.param(path))
+                : new FrozenPatternMap(path, null);
+        if (cache != null) {
+            cache.put(path, patternMap);
+        }
+        return patternMap;
+    }
+
+    private void register(String pattern) {
+        Node node = root;
+        List<String> names = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+
+        int end = trimmedEnd(pattern);
+        int index = 0;
+        for (int start = 0; start <= end; index++) {
+            int segmentEnd = segmentEnd(pattern, start, end);
+            if (segmentEnd > start && pattern.charAt(start) == PARAM_PREFIX) {
+                names.add(pattern.substring(start + 1, segmentEnd));
+                indexes.add(index);
+                node = node.param();
+            } else {
+                node = node.literal(pattern.substring(start, segmentEnd));
+            }
+            start = segmentEnd + 1;
+        }
+
+        if (node.route == null) {
+            node.route = new Route(pattern, names.toArray(new String[0]), indexes.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    private Route find(Node node, String path, int start, int end) {
+        if (start > end) {
+            return node.route;
+        }
+
+        int segmentEnd = segmentEnd(path, start, end);
+        Node literal = node.find(path, start, segmentEnd);
+        if (literal != null) {
+            Route route = find(literal, path, segmentEnd + 1, end);
+            if (route != null) {
+                return route;
+            }
+        }
+        return (node.param != null) ? find(node.param, path, segmentEnd + 1, end) : null;
+    }
+
+    private static int segmentEnd(String path, int start, int end) {
+        int slash = path.indexOf(SEPARATOR, start);
+        return (slash < 0 || slash > end) ? end : slash;
+    }
+
+    private static int trimmedEnd(String path) {
+        int end = path.length();
+        while (end > 0 && path.charAt(end - 1) == SEPARATOR) {
+            end--;
+        }
+        return end;
+    }
+
+    private static int hash(String path, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + path.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static class Route {
+        private final String pattern;
+        private final String[] names;
+        private final int[] indexes;
+
+        Route(String pattern, String[] names, int[] indexes) {
+            this.pattern = pattern;
+            this.names = names;
+            this.indexes = indexes;
+        }
+
+        String param(String path) {
+            StringBuilder param = new StringBuilder();
+            int end = trimmedEnd(path);
+            int next = 0;
+            int index = 0;
+            for (int start = 0; start <= end && next < indexes.length; index++) {
+                int segmentEnd = segmentEnd(path, start, end);
+                if (indexes[next] == index) {
+                    if (param.length() > 0) {
+                        param.append('&');
+                    }
+                    param.append(names[next++]).append('=').append(path, start, segmentEnd);
+                }
+                start = segmentEnd + 1;
+            }
+            return param.toString();
+        }
+    }
+
+    private static class Node {
+        private Map<String, Node> children = new LinkedHashMap<>();
+        private String[] keys;
+        private Node[] nodes;
+        private int mask;
+        private Node param;
+        private Route route;
+
+        Node literal(String segment) {
+            return children.computeIfAbsent(segment, k -> new Node());
+        }
+
+        Node param() {
+            if (param == null) {
+                param = new Node();
+            }
+            return param;
+        }
+
+        Node find(String path, int start, int end) {
+            if (keys == null) {
+                return null;
+            }
+            int length = end - start;
+            for (int i = hash(path, start, end) & mask; keys[i] != null; i = (i + 1) & mask) {
+                if (keys[i].length() == length && path.regionMatches(start, keys[i], 0, length)) {
+                    return nodes[i];
+                }
+            }
+            return null;
+        }
+
+        void freeze() {
+            if (!children.isEmpty()) {
+                int size = Integer.highestOneBit(children.size() * 2 - 1) << 1;
+                keys = new String[size];
+                nodes = new Node[size];
+                mask = size - 1;
+                for (Map.Entry<String, Node> child : children.entrySet()) {
+                    String key = child.getKey();
+                    int i = hash(key, 0, key.length()) & mask;
+                    while (keys[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = key;
+                    nodes[i] = child.getValue();
+                    child.getValue().freeze();
+                }
+            }
+            if (param != null) {
+                param.freeze();
+            }
+            children = null;
+        }
+    }
+
+    private static class FrozenPatternMap extends PacketDto.PatternMap {
+
+        FrozenPatternMap(String pattern, String param) {
+            super(pattern, param);
+        }
+
+        @Override
+        public void setPattern(String pattern) {
+            throw new UnsupportedOperationException("shared by every request on the path");
+        }
+
+        @Override
+        public void setParam(String param) {
+            throw new UnsupportedOperationException("shared by every request on the path");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.packetlogger.sampling;
+
+import com.example.packetlogger.config.BaseProperties;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+public class PacketSampler {
+
+    static final double DEFAULT_RATIO = 1.0;
+
+    private final Map<String, RouteSampler> routes;
+
+    public PacketSampler(Collection<RouteSampler> routes) {
+        Map<String, RouteSampler> map = new LinkedHashMap<>();
+        routes.forEach(r -> map.putIfAbsent(r.getPattern(), r));
+        this.routes = Collections.unmodifiableMap(map);
+    }
+
+    public static PacketSampler of(BaseProperties.PacketLogger options) {
+        List<BaseProperties.SamplingRule> rules = Optional.ofNullable(options.getSampling())
+                .map(BaseProperties.Sampling::getRules)
+                .orElse(Collections.emptyList());
+
+        return new PacketSampler(rules.stream()
+                .map(rule -> new RouteSampler(
+                        rule.getPattern(),
+                        Optional.ofNullable(rule.getRatio()).orElse(DEFAULT_RATIO),
+                        Optional.ofNullable(rule.getMaxPerSecond()).orElse(0),
+                        rule.isKeepErrors(),
+                        Optional.ofNullable(rule.getSlowThreshold()).map(Duration::toNanos).orElse(0L)))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the sampler for the route, or {@code null} when no rule applies and every request is kept
+     */
+    public RouteSampler route(String pattern) {
+        return (pattern != null) ? routes.get(pattern) : null;
+    }
+
+    public Map<String, RouteSampler> getRoutes() {
+        return routes;
+    }
+}
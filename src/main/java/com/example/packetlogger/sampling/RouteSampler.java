@@ -0,0 +1,92 @@
+package com.example.packetlogger.sampling;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sampling state of one route. The per second cap is a GCRA token bucket kept in a single {@link AtomicLong},
+ * so a decision costs one random draw and at most one CAS.
+ */
+public class RouteSampler {
+
+    static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String pattern;
+    private final double ratio;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final boolean keepErrors;
+    private final long slowThresholdNanos;
+    private final AtomicLong arrival;
+    private final LongAdder kept = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public RouteSampler(String pattern, double ratio, int maxPerSecond, boolean keepErrors, long slowThresholdNanos) {
+        this.pattern = pattern;
+        this.ratio = ratio;
+        this.intervalNanos = (maxPerSecond > 0) ? SECOND_NANOS / maxPerSecond : 0;
+        this.burstNanos = (maxPerSecond > 0) ? SECOND_NANOS : 0;
+        this.keepErrors = keepErrors;
+        this.slowThresholdNanos = slowThresholdNanos;
+        this.arrival = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    /**
+     * Head decision, made before anything is captured. A request that is not sampled is counted as dropped
+     * right away unless {@link #keep(int, long)} may still rescue it once status and duration are known.
+     */
+    public boolean sample() {
+        boolean sampled = (ratio >= 1.0 || ThreadLocalRandom.current().nextDouble() < ratio)
+                && (intervalNanos == 0 || acquire());
+        if (sampled) {
+            kept.increment();
+        } else if (!isRescuable()) {
+            dropped.increment();
+        }
+        return sampled;
+    }
+
+    public boolean isRescuable() {
+        return keepErrors || slowThresholdNanos > 0;
+    }
+
+    public boolean keep(int status, long durationNanos) {
+        boolean keep = (keepErrors && (status < 200 || status >= 300))
+                || (slowThresholdNanos > 0 && durationNanos >= slowThresholdNanos);
+        if (keep) {
+            kept.increment();
+        } else {
+            dropped.increment();
+        }
+        return keep;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public long getKeptCount() {
+        return kept.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private boolean acquire() {
+        long now = System.nanoTime();
+        for (;;) {
+            long current = arrival.get();
+            long theoretical = Math.max(current, now - burstNanos);
+            // admitted only if this request's own interval fits, so a full bucket holds exactly maxPerSecond
+            if (theoretical + intervalNanos - now > 0) {
+                return false;
+            }
+            if (arrival.compareAndSet(current, theoretical + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+}
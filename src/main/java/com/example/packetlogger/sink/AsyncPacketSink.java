@@ -0,0 +1,245 @@
+package com.example.packetlogger.sink;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.format.BlockRecordWriter;
+import com.example.packetlogger.format.Compression;
+import com.example.packetlogger.format.RecordFormat;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands records to a background writer through a {@link RingBuffer} so request threads never touch the output.
+ * The writer drains up to {@code batchSize} records per flush, or whatever is queued once {@code flushInterval} passes.
+ * An idle writer parks until the next flush deadline and is woken by the first record published after it parked.
+ */
+public class AsyncPacketSink implements PacketSink {
+
+    static final String THREAD_NAME = "packet-logger-writer";
+    static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    static final int DEFAULT_BATCH_SIZE = 256;
+    static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(200);
+    static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DROP_NEWEST;
+    static final SinkType DEFAULT_TYPE = SinkType.STDOUT;
+    static final String DEFAULT_SPILL_DIRECTORY = "packet-spill";
+    static final DataSize DEFAULT_SPILL_LIMIT = DataSize.ofMegabytes(256);
+    static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final RingBuffer<byte[]> queue;
+    private final RecordWriter recordWriter;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long parkNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean parked;
+
+    public AsyncPacketSink(OutputStream out, int queueCapacity, int batchSize, Duration flushInterval, OverflowPolicy overflowPolicy) {
+        this(new LineRecordWriter(out), queueCapacity, batchSize, flushInterval, overflowPolicy);
+    }
+
+    public AsyncPacketSink(RecordWriter recordWriter, int queueCapacity, int batchSize, Duration flushInterval, OverflowPolicy overflowPolicy) {
+        this.queue = new RingBuffer<>(queueCapacity);
+        this.recordWriter = recordWriter;
+        this.batchSize = Math.max(batchSize, 1);
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.parkNanos = Math.max(Math.min(flushIntervalNanos, MAX_PARK_NANOS), 1);
+        this.overflowPolicy = overflowPolicy;
+        this.writer = new Thread(this::drain, THREAD_NAME);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static AsyncPacketSink of(BaseProperties.PacketLogger options) {
+        Optional<BaseProperties.Sink> sink = Optional.ofNullable(options.getSink());
+        SinkType type = sink.map(BaseProperties.Sink::getType).orElse(DEFAULT_TYPE);
+        Compression compression = sink.map(BaseProperties.Sink::getCompression).orElse(Compression.NONE);
+        if (type == SinkType.FILE) {
+            RecordWriter segmentWriter = segmentWriter(sink.map(BaseProperties.Sink::getFile));
+            return of(options, (compression != Compression.NONE) ? new BlockRecordWriter(segmentWriter, compression) : segmentWriter);
+        }
+        if (compression != Compression.NONE || Optional.ofNullable(options.getFormat()).orElse(RecordFormat.JSON) != RecordFormat.JSON) {
+            throw new IllegalStateException("packet-logger.format and packet-logger.sink.compression other than json/none require packet-logger.sink.type=file");
+        }
+        if (type == SinkType.HTTP) {
+            return of(options, httpWriter(sink.map(BaseProperties.Sink::getHttp)));
+        }
+        return of(options, new FileOutputStream(FileDescriptor.out));
+    }
+
+    public static AsyncPacketSink of(BaseProperties.PacketLogger options, OutputStream out) {
+        return of(options, new LineRecordWriter(out));
+    }
+
+    public static AsyncPacketSink of(BaseProperties.PacketLogger options, RecordWriter recordWriter) {
+        Optional<BaseProperties.Sink> sink = Optional.ofNullable(options.getSink());
+        return new AsyncPacketSink(
+                recordWriter,
+                sink.map(BaseProperties.Sink::getQueueCapacity).orElse(DEFAULT_QUEUE_CAPACITY),
+                sink.map(BaseProperties.Sink::getBatchSize).orElse(DEFAULT_BATCH_SIZE),
+                sink.map(BaseProperties.Sink::getFlushInterval).orElse(DEFAULT_FLUSH_INTERVAL),
+                sink.map(BaseProperties.Sink::getOverflowPolicy).orElse(DEFAULT_OVERFLOW_POLICY));
+    }
+
+    @Override
+    public void write(byte[] record) {
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                while (!queue.offer(record)) {
+                    if (!running) {
+                        dropped.increment();
+                        return;
+                    }
+                    LockSupport.parkNanos(this, parkNanos);
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(record)) {
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                break;
+            default:
+                if (!queue.offer(record)) {
+                    dropped.increment();
+                    return;
+                }
+        }
+        if (parked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.sum() + recordWriter.getDroppedCount();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Waits up to {@link #CLOSE_TIMEOUT_MILLIS} for the queue to drain. The record writer is closed by the writer thread
+     * as it exits, so a writer still busy after the timeout keeps its output until it is done with it.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static HttpRecordWriter httpWriter(Optional<BaseProperties.SinkHttp> http) {
+        String url = http.map(BaseProperties.SinkHttp::getUrl)
+                .orElseThrow(() -> new IllegalStateException("packet-logger.sink.http.url is required for packet-logger.sink.type=http"));
+        long spillLimit = http.map(BaseProperties.SinkHttp::getSpillLimit).orElse(DEFAULT_SPILL_LIMIT).toBytes();
+        try {
+            return new HttpRecordWriter(
+                    URI.create(url),
+                    http.map(BaseProperties.SinkHttp::getConnectTimeout).orElse(HttpRecordWriter.DEFAULT_CONNECT_TIMEOUT),
+                    http.map(BaseProperties.SinkHttp::getRequestTimeout).orElse(HttpRecordWriter.DEFAULT_REQUEST_TIMEOUT),
+                    http.map(BaseProperties.SinkHttp::getHeaders).orElse(null),
+                    http.map(BaseProperties.SinkHttp::getInitialBackoff).orElse(HttpRecordWriter.DEFAULT_INITIAL_BACKOFF),
+                    http.map(BaseProperties.SinkHttp::getMaxBackoff).orElse(HttpRecordWriter.DEFAULT_MAX_BACKOFF),
+                    (spillLimit > 0) ? Paths.get(http.map(BaseProperties.SinkHttp::getSpillDirectory).orElse(DEFAULT_SPILL_DIRECTORY)) : null,
+                    spillLimit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static SegmentFileWriter segmentWriter(Optional<BaseProperties.SinkFile> file) {
+        try {
+            return new SegmentFileWriter(
+                    Paths.get(file.map(BaseProperties.SinkFile::getDirectory).orElse(SegmentFileWriter.DEFAULT_DIRECTORY)),
+                    file.map(BaseProperties.SinkFile::getPrefix).orElse(SegmentFileWriter.DEFAULT_PREFIX),
+                    (int) Math.min(file.map(BaseProperties.SinkFile::getSegmentSize).orElse(SegmentFileWriter.DEFAULT_SEGMENT_SIZE).toBytes(), Integer.MAX_VALUE),
+                    file.map(BaseProperties.SinkFile::getRotateInterval).orElse(SegmentFileWriter.DEFAULT_ROTATE_INTERVAL),
+                    file.map(BaseProperties.SinkFile::getFsync).orElse(SegmentFileWriter.DEFAULT_FSYNC),
+                    file.map(BaseProperties.SinkFile::getMaxSegments).orElse(SegmentFileWriter.DEFAULT_MAX_SEGMENTS),
+                    file.map(BaseProperties.SinkFile::getMaxAge).orElse(SegmentFileWriter.DEFAULT_MAX_AGE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drain() {
+        long lastFlush = System.nanoTime();
+        int pending = 0;
+
+        while (running || queue.size() > 0) {
+            byte[] record;
+            while (pending < batchSize && (record = queue.poll()) != null) {
+                try {
+                    recordWriter.append(record);
+                    pending++;
+                } catch (IOException e) {
+                    dropped.increment();
+                }
+            }
+
+            long now = System.nanoTime();
+            if (pending >= batchSize || (pending > 0 && now - lastFlush >= flushIntervalNanos)) {
+                flush(pending);
+                pending = 0;
+                lastFlush = now;
+            } else if (running) {
+                park((pending > 0) ? lastFlush + flushIntervalNanos - now : flushIntervalNanos);
+            }
+        }
+
+        if (pending > 0) {
+            flush(pending);
+        }
+        try {
+            recordWriter.close();
+        } catch (IOException e) {
+        }
+    }
+
+    /**
+     * The queue is checked again after {@code parked} is raised, so a record published in between either is seen here
+     * or unparks the writer.
+     */
+    private void park(long nanos) {
+        parked = true;
+        if (queue.size() == 0 && running) {
+            LockSupport.parkNanos(this, Math.max(nanos, 1));
+        }
+        parked = false;
+    }
+
+    private void flush(int pending) {
+        try {
+            recordWriter.flush();
+        } catch (IOException e) {
+            dropped.add(pending);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.packetlogger.sink;
+
+/**
+ * When mapped segment pages are forced to disk. Without a force the OS writes them back on its own schedule,
+ * which survives a process crash but not a power loss.
+ */
+public enum FsyncPolicy {
+    NEVER,
+    ROTATE,
+    FLUSH
+}
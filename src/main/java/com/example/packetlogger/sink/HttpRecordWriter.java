@@ -0,0 +1,183 @@
+package com.example.packetlogger.sink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * POSTs each flushed batch as gzipped NDJSON to a collector (Logstash {@code http} input, Vector {@code http_server} source).
+ * A failed batch goes to the {@link SpillQueue} and the collector is left alone for an exponentially growing backoff;
+ * spilled batches are sent oldest first once it answers again. Without a spill queue a failed batch is dropped.
+ * All posts of one flush share a single {@code requestTimeout} budget, so a slow collector holds the writer thread for
+ * at most that long; whatever is left waits in the spill queue, and a new batch is only posted once the queue is empty.
+ */
+public class HttpRecordWriter implements RecordWriter {
+
+    static final String CONTENT_TYPE = "application/x-ndjson";
+    static final String CONTENT_ENCODING = "gzip";
+    static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(2);
+    static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(500);
+    static final Duration DEFAULT_MAX_BACKOFF = Duration.ofMinutes(1);
+    static final int MAX_SPILLED_PER_FLUSH = 16;
+    static final int NEW_LINE = '\n';
+
+    private final HttpClient client;
+    private final URI endpoint;
+    private final Duration requestTimeout;
+    private final Map<String, String> headers;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final SpillQueue spill;
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+    private final LongAdder dropped = new LongAdder();
+    private int records;
+    private long backoffNanos;
+    private long retryAt;
+
+    public HttpRecordWriter(URI endpoint, Duration connectTimeout, Duration requestTimeout, Map<String, String> headers,
+                            Duration initialBackoff, Duration maxBackoff, Path spillDirectory, long spillLimit) throws IOException {
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+        this.endpoint = endpoint;
+        this.requestTimeout = requestTimeout;
+        this.headers = (headers != null) ? Map.copyOf(headers) : Map.of();
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = Math.max(maxBackoff.toNanos(), initialBackoffNanos);
+        this.spill = (spillDirectory != null) ? new SpillQueue(spillDirectory, spillLimit) : null;
+        this.retryAt = System.nanoTime();
+    }
+
+    @Override
+    public void append(byte[] record) {
+        batch.write(record, 0, record.length);
+        batch.write(NEW_LINE);
+        records++;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (records == 0) {
+            return;
+        }
+
+        byte[] body;
+        int count = records;
+        try {
+            body = gzip();
+        } finally {
+            batch.reset();
+            records = 0;
+        }
+
+        if (!ship(body, count, System.nanoTime() + requestTimeout.toNanos())) {
+            if (spill == null) {
+                throw new IOException("collector unavailable: " + endpoint);
+            }
+            spill.offer(body, count);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.sum() + ((spill != null) ? spill.getDroppedCount() : 0);
+    }
+
+    private boolean ship(byte[] body, int records, long deadline) {
+        if (System.nanoTime() - retryAt < 0 || !drainSpill(deadline)) {
+            return false;
+        }
+        return post(body, records, deadline);
+    }
+
+    /**
+     * {@code true} once the spill queue is empty. A batch that cannot be read is counted as dropped and taken out of
+     * the queue even if its file cannot be deleted, so it is never counted twice.
+     */
+    private boolean drainSpill(long deadline) {
+        if (spill == null) {
+            return true;
+        }
+        for (int i = 0; i < MAX_SPILLED_PER_FLUSH && !spill.isEmpty(); i++) {
+            Path spilled = spill.peek();
+            byte[] body;
+            try {
+                body = spill.read(spilled);
+            } catch (IOException e) {
+                dropped.add(SpillQueue.records(spilled));
+                spill.remove(spilled);
+                continue;
+            }
+            if (!post(body, SpillQueue.records(spilled), deadline)) {
+                return false;
+            }
+            spill.remove(spilled);
+        }
+        return spill.isEmpty();
+    }
+
+    /**
+     * {@code true} once the batch needs no further attempts: accepted, or refused with a status retrying cannot fix.
+     * Waits no longer than what is left until {@code deadline}; an exhausted budget is not a collector failure.
+     */
+    private boolean post(byte[] body, int records, long deadline) {
+        long remaining = Math.min(requestTimeout.toNanos(), deadline - System.nanoTime());
+        if (remaining < TimeUnit.MILLISECONDS.toNanos(1)) {
+            return false;
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(endpoint)
+                .timeout(Duration.ofNanos(remaining))
+                .header("Content-Type", CONTENT_TYPE)
+                .header("Content-Encoding", CONTENT_ENCODING)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        headers.forEach(request::header);
+
+        int status;
+        try {
+            status = client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return backoff();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return backoff();
+        }
+
+        if (status >= 500 || status == 408 || status == 429) {
+            return backoff();
+        }
+        if (status >= 300) {
+            dropped.add(records);
+        }
+        backoffNanos = 0;
+        return true;
+    }
+
+    private boolean backoff() {
+        backoffNanos = (backoffNanos == 0) ? initialBackoffNanos : Math.min(backoffNanos * 2, maxBackoffNanos);
+        retryAt = System.nanoTime() + backoffNanos;
+        return false;
+    }
+
+    private byte[] gzip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(batch.size() / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            batch.writeTo(gzip);
+        }
+        return out.toByteArray();
+    }
+}
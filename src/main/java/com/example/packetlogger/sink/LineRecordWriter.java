@@ -0,0 +1,42 @@
+package com.example.packetlogger.sink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Newline separated records, buffered until {@link #flush()} so a batch reaches the stream in one write.
+ * The stream belongs to the caller and is only flushed on close.
+ */
+public class LineRecordWriter implements RecordWriter {
+
+    static final int NEW_LINE = '\n';
+
+    private final OutputStream out;
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+
+    public LineRecordWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void append(byte[] record) {
+        batch.write(record, 0, record.length);
+        batch.write(NEW_LINE);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        try {
+            batch.writeTo(out);
+            out.flush();
+        } finally {
+            batch.reset();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.packetlogger.sink;
+
+public enum OverflowPolicy {
+    BLOCK,
+    DROP_NEWEST,
+    DROP_OLDEST
+}
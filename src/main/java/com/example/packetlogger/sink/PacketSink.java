@@ -0,0 +1,20 @@
+package com.example.packetlogger.sink;
+
+import java.io.Closeable;
+
+public interface PacketSink extends Closeable {
+
+    void write(byte[] record);
+
+    default long getDroppedCount() {
+        return 0;
+    }
+
+    default int getQueueDepth() {
+        return 0;
+    }
+
+    @Override
+    default void close() {
+    }
+}
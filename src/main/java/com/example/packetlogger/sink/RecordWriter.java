@@ -0,0 +1,21 @@
+package com.example.packetlogger.sink;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of an {@link AsyncPacketSink}. Only the sink's writer thread calls it, so implementations need no locking.
+ */
+public interface RecordWriter extends Closeable {
+
+    void append(byte[] record) throws IOException;
+
+    void flush() throws IOException;
+
+    /**
+     * Records lost after {@link #append} accepted them, such as batches evicted from a spill queue.
+     */
+    default long getDroppedCount() {
+        return 0;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.packetlogger.sink;
+
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Appends framed records to fixed-size memory-mapped segment files, rotating when a record no longer fits
+ * or {@code rotateInterval} has passed. On startup the last segment is scanned and anything after the
+ * last intact frame, such as a record torn by a crash, is zeroed before appending resumes.
+ * Rolled segments are unmapped, and on each rotation the oldest ones beyond {@code maxSegments} or older than
+ * {@code maxAge} are deleted; zero keeps everything.
+ */
+public class SegmentFileWriter implements RecordWriter {
+
+    static final String DEFAULT_DIRECTORY = "packet-logs";
+    static final String DEFAULT_PREFIX = "packet";
+    static final DataSize DEFAULT_SEGMENT_SIZE = DataSize.ofMegabytes(64);
+    static final Duration DEFAULT_ROTATE_INTERVAL = Duration.ofHours(1);
+    static final FsyncPolicy DEFAULT_FSYNC = FsyncPolicy.ROTATE;
+    static final int DEFAULT_MAX_SEGMENTS = 0;
+    static final Duration DEFAULT_MAX_AGE = Duration.ZERO;
+    static final int ZERO_CHUNK = 8192;
+
+    private final Path directory;
+    private final String prefix;
+    private final int segmentSize;
+    private final long rotateIntervalNanos;
+    private final FsyncPolicy fsync;
+    private final int maxSegments;
+    private final long maxAgeMillis;
+    private final CRC32C crc = new CRC32C();
+    private MappedByteBuffer segment;
+    private long sequence;
+    private long openedAt;
+
+    public SegmentFileWriter(Path directory, String prefix, int segmentSize, Duration rotateInterval, FsyncPolicy fsync) throws IOException {
+        this(directory, prefix, segmentSize, rotateInterval, fsync, DEFAULT_MAX_SEGMENTS, DEFAULT_MAX_AGE);
+    }
+
+    public SegmentFileWriter(Path directory, String prefix, int segmentSize, Duration rotateInterval, FsyncPolicy fsync,
+                             int maxSegments, Duration maxAge) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = Math.max(segmentSize, Segments.HEADER_SIZE + 1);
+        this.rotateIntervalNanos = (rotateInterval != null) ? rotateInterval.toNanos() : 0;
+        this.fsync = fsync;
+        this.maxSegments = Math.max(maxSegments, 0);
+        this.maxAgeMillis = (maxAge != null) ? Math.max(maxAge.toMillis(), 0) : 0;
+
+        Files.createDirectories(directory);
+        List<Path> segments = Segments.list(directory, prefix);
+        if (segments.isEmpty()) {
+            open(0);
+        } else {
+            recover(segments.get(segments.size() - 1));
+        }
+        retain();
+    }
+
+    @Override
+    public void append(byte[] record) throws IOException {
+        if (record.length == 0) {
+            return;
+        }
+        if (Segments.HEADER_SIZE + record.length > segmentSize) {
+            throw new IOException("record of " + record.length + " bytes does not fit a " + segmentSize + " byte segment");
+        }
+        if (segment.remaining() < Segments.HEADER_SIZE + record.length || isExpired()) {
+            rotate();
+        }
+
+        crc.reset();
+        crc.update(record);
+        int position = segment.position();
+        segment.position(position + Segments.HEADER_SIZE);
+        segment.put(record);
+        segment.putInt(position + 4, (int) crc.getValue());
+        segment.putInt(position, record.length);
+    }
+
+    @Override
+    public void flush() {
+        if (fsync == FsyncPolicy.FLUSH) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (segment != null && fsync != FsyncPolicy.NEVER) {
+            segment.force();
+        }
+        Segments.unmap(segment);
+        segment = null;
+    }
+
+    private boolean isExpired() {
+        return rotateIntervalNanos > 0 && segment.position() > 0 && System.nanoTime() - openedAt >= rotateIntervalNanos;
+    }
+
+    private void rotate() throws IOException {
+        if (fsync != FsyncPolicy.NEVER) {
+            segment.force();
+        }
+        MappedByteBuffer rolled = segment;
+        open(sequence + 1);
+        Segments.unmap(rolled);
+        retain();
+    }
+
+    /**
+     * Deletes rolled segments, oldest first, while there are more than {@code maxSegments} or they were last written
+     * before {@code maxAge} ago. The segment being written is never deleted, and a failed delete is retried next rotation.
+     */
+    private void retain() {
+        if (maxSegments == 0 && maxAgeMillis == 0) {
+            return;
+        }
+        try {
+            List<Path> segments = Segments.list(directory, prefix);
+            int excess = (maxSegments > 0) ? segments.size() - maxSegments : 0;
+            long cutoff = System.currentTimeMillis() - maxAgeMillis;
+            for (Path rolled : segments) {
+                if (Segments.sequence(rolled, prefix) >= sequence) {
+                    break;
+                }
+                if (excess-- > 0 || (maxAgeMillis > 0 && Files.getLastModifiedTime(rolled).toMillis() < cutoff)) {
+                    try {
+                        Files.deleteIfExists(rolled);
+                    } catch (IOException e) {
+                    }
+                }
+            }
+        } catch (IOException e) {
+        }
+    }
+
+    private void open(long sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve(Segments.name(prefix, sequence)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        this.sequence = sequence;
+        this.openedAt = System.nanoTime();
+    }
+
+    private void recover(Path last) throws IOException {
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        this.sequence = Segments.sequence(last, prefix);
+        this.openedAt = System.nanoTime();
+
+        int position = 0;
+        int length;
+        while ((length = Segments.frame(segment, position, crc)) > 0) {
+            position += Segments.HEADER_SIZE + length;
+        }
+
+        byte[] zeros = new byte[ZERO_CHUNK];
+        segment.position(position);
+        while (segment.hasRemaining()) {
+            segment.put(zeros, 0, Math.min(zeros.length, segment.remaining()));
+        }
+        segment.force();
+        segment.position(position);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.packetlogger.sink;
+
+import com.example.packetlogger.format.RecordDecoder;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Streams the records of a {@link SegmentFileWriter} directory back out as NDJSON, oldest segment first.
+ * Binary formats and compressed blocks are converted back to JSON through {@link RecordDecoder}. Reading stops at the end of each segment's intact frames, so the segment still being written can be exported too.
+ *
+ * <pre>java -cp packet-logger.jar com.example.packetlogger.sink.SegmentReader &lt;directory&gt; [prefix]</pre>
+ */
+public class SegmentReader {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: SegmentReader <directory> [prefix]");
+            System.exit(2);
+        }
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out));
+        export(Paths.get(args[0]), (args.length > 1) ? args[1] : SegmentFileWriter.DEFAULT_PREFIX, out);
+        out.flush();
+    }
+
+    /**
+     * Writes every intact record under {@code directory} to {@code out}, one per line, and returns how many were written.
+     */
+    public static long export(Path directory, String prefix, OutputStream out) throws IOException {
+        RecordDecoder decoder = new RecordDecoder();
+        long records = 0;
+        for (Path segment : Segments.list(directory, prefix)) {
+            records += export(segment, decoder, out);
+        }
+        return records;
+    }
+
+    /**
+     * A segment deleted by retention between listing and opening it has no records.
+     */
+    public static long export(Path segment, RecordDecoder decoder, OutputStream out) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        try {
+            return export(buffer, decoder, out);
+        } finally {
+            Segments.unmap(buffer);
+        }
+    }
+
+    private static long export(MappedByteBuffer buffer, RecordDecoder decoder, OutputStream out) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] payload = new byte[0];
+        long records = 0;
+        int position = 0;
+        int length;
+        while ((length = Segments.frame(buffer, position, crc)) > 0) {
+            if (payload.length < length) {
+                payload = new byte[length];
+            }
+            buffer.position(position + Segments.HEADER_SIZE);
+            buffer.get(payload, 0, length);
+            records += decoder.decode(payload, 0, length, out);
+            position += Segments.HEADER_SIZE + length;
+        }
+        return records;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.packetlogger.sink;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Segment file layout shared by {@link SegmentFileWriter} and {@link SegmentReader}.
+ * A segment is a pre-sized file of frames {@code [int length][int crc32c][payload]}; the first zero length ends it.
+ */
+final class Segments {
+
+    static final String SUFFIX = ".seg";
+    static final int HEADER_SIZE = 8;
+    static final int SEQUENCE_DIGITS = 20;
+
+    private static final Object UNSAFE = unsafe();
+    private static final Method INVOKE_CLEANER = invokeCleaner();
+
+    private Segments() {
+    }
+
+    static String name(String prefix, long sequence) {
+        return String.format("%s-%020d%s", prefix, sequence, SUFFIX);
+    }
+
+    /**
+     * Sequence of a segment named by {@link #name}, or -1 when the name is not {@code prefix}, a dash and only digits,
+     * such as the segment of another prefix that also starts with {@code prefix-}.
+     */
+    static long sequence(Path segment, String prefix) {
+        String name = segment.getFileName().toString();
+        int start = prefix.length() + 1;
+        int end = name.length() - SUFFIX.length();
+        if (end <= start || end - start > SEQUENCE_DIGITS || !name.startsWith(prefix + "-") || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        for (int i = start; i < end; i++) {
+            if (name.charAt(i) < '0' || name.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        try {
+            return Long.parseLong(name.substring(start, end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Segments of {@code prefix} in write order. Files the glob matches but whose name does not parse are skipped.
+     */
+    static List<Path> list(Path directory, String prefix) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "-*" + SUFFIX)) {
+            for (Path segment : stream) {
+                if (sequence(segment, prefix) >= 0) {
+                    segments.add(segment);
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(segment -> sequence(segment, prefix)));
+        return segments;
+    }
+
+    /**
+     * Releases the mapping now instead of when the buffer is collected, so a deleted segment frees its disk space.
+     * The buffer must not be touched afterwards. Without {@code sun.misc.Unsafe} the mapping is left to the collector.
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (Exception e) {
+        }
+    }
+
+    private static Object unsafe() {
+        try {
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return field.get(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Method invokeCleaner() {
+        try {
+            return (UNSAFE != null) ? UNSAFE.getClass().getMethod("invokeCleaner", ByteBuffer.class) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Payload length of the frame at {@code position}, or -1 when there is no complete, intact frame there.
+     */
+    static int frame(ByteBuffer segment, int position, CRC32C crc) {
+        if (position > segment.limit() - HEADER_SIZE) {
+            return -1;
+        }
+        int length = segment.getInt(position);
+        if (length <= 0 || length > segment.limit() - position - HEADER_SIZE) {
+            return -1;
+        }
+
+        ByteBuffer payload = segment.duplicate();
+        payload.limit(position + HEADER_SIZE + length).position(position + HEADER_SIZE);
+        crc.reset();
+        crc.update(payload);
+        return ((int) crc.getValue() == segment.getInt(position + 4)) ? length : -1;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.packetlogger.sink;
+
+public enum SinkType {
+    STDOUT,
+    FILE,
+    HTTP
+}
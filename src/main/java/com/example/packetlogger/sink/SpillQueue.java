@@ -0,0 +1,139 @@
+package com.example.packetlogger.sink;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Directory of gzipped NDJSON batches waiting for the collector, one file per batch, oldest first.
+ * When {@code limit} bytes are exceeded the oldest batches are deleted and their records counted as dropped.
+ * Only the sink's writer thread touches it.
+ */
+class SpillQueue {
+
+    static final String PREFIX = "spill-";
+    static final String SUFFIX = ".ndjson.gz";
+    static final String TEMP_SUFFIX = ".tmp";
+    static final int SEQUENCE_DIGITS = 20;
+    static final int RECORDS_DIGITS = 10;
+
+    private final Path directory;
+    private final long limit;
+    private final LinkedHashMap<Path, Long> batches = new LinkedHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private long size;
+    private long sequence;
+
+    SpillQueue(Path directory, long limit) throws IOException {
+        this.directory = directory;
+        this.limit = limit;
+
+        Files.createDirectories(directory);
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(existing::add);
+        }
+        existing.sort(null);
+        for (Path batch : existing) {
+            if (sequence(batch) < 0 || records(batch) < 0) {
+                continue;
+            }
+            long length = Files.size(batch);
+            batches.put(batch, length);
+            size += length;
+            sequence = Math.max(sequence, sequence(batch) + 1);
+        }
+    }
+
+    void offer(byte[] batch, int records) throws IOException {
+        Path target = directory.resolve(String.format("%s%020d-%d%s", PREFIX, sequence++, records, SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + TEMP_SUFFIX);
+        Files.write(temp, batch);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        batches.put(target, (long) batch.length);
+        size += batch.length;
+
+        while (size > limit && batches.size() > 1) {
+            Path oldest = peek();
+            dropped.add(records(oldest));
+            remove(oldest);
+        }
+    }
+
+    Path peek() {
+        return batches.isEmpty() ? null : batches.keySet().iterator().next();
+    }
+
+    byte[] read(Path batch) throws IOException {
+        return Files.readAllBytes(batch);
+    }
+
+    /**
+     * Leaves the queue even when the file cannot be deleted; a leftover file is only picked up again on restart.
+     */
+    void remove(Path batch) {
+        Long length = batches.remove(batch);
+        if (length == null) {
+            return;
+        }
+        size -= length;
+        try {
+            Files.deleteIfExists(batch);
+        } catch (IOException e) {
+        }
+    }
+
+    boolean isEmpty() {
+        return batches.isEmpty();
+    }
+
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Record count from a batch name, or -1 when the name was not written by {@link #offer}.
+     */
+    static int records(Path batch) {
+        String name = batch.getFileName().toString();
+        int separator = separator(name);
+        long records = (separator < 0) ? -1 : number(name, separator + 1, name.length() - SUFFIX.length(), RECORDS_DIGITS);
+        return (records <= Integer.MAX_VALUE) ? (int) records : -1;
+    }
+
+    static long sequence(Path batch) {
+        String name = batch.getFileName().toString();
+        int separator = separator(name);
+        return (separator < 0) ? -1 : number(name, PREFIX.length(), separator, SEQUENCE_DIGITS);
+    }
+
+    private static int separator(String name) {
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        int separator = name.indexOf('-', PREFIX.length());
+        return (separator < name.length() - SUFFIX.length()) ? separator : -1;
+    }
+
+    private static long number(String name, int start, int end, int maxDigits) {
+        if (end <= start || end - start > maxDigits) {
+            return -1;
+        }
+        for (int i = start; i < end; i++) {
+            if (name.charAt(i) < '0' || name.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        try {
+            return Long.parseLong(name.substring(start, end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
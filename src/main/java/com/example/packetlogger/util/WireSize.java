@@ -0,0 +1,79 @@
+package com.example.packetlogger.util;
+
+import java.util.Map;
+
+/**
+ * HTTP/1.1 wire sizes computed from the values already at hand, without encoding anything.
+ * A header line is {@code name ": " value CRLF}; headers without a value are not on the wire and count as zero.
+ */
+public final class WireSize {
+
+    static final int SEPARATOR = 2;
+    static final int CRLF = 2;
+
+    private WireSize() {
+    }
+
+    public static int headers(Map<String, ?> headers) {
+        int size = 0;
+        for (Map.Entry<String, ?> header : headers.entrySet()) {
+            size += header(header.getKey(), header.getValue());
+        }
+        return size;
+    }
+
+    public static int header(String name, Object value) {
+        if (name == null || value == null) {
+            return 0;
+        }
+        return utf8Length(name) + SEPARATOR + length(value) + CRLF;
+    }
+
+    public static int length(Object value) {
+        if (value instanceof CharSequence) {
+            return utf8Length((CharSequence) value);
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return digits(((Number) value).longValue());
+        }
+        return utf8Length(value.toString());
+    }
+
+    /**
+     * A lone surrogate counts as the single {@code ?} the UTF-8 encoder replaces it with.
+     */
+    public static int utf8Length(CharSequence value) {
+        int length = value.length();
+        int size = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    size += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    size += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    size += 2;
+                }
+            }
+        }
+        return size;
+    }
+
+    public static int digits(long value) {
+        if (value == Long.MIN_VALUE) {
+            return 20;
+        }
+        int size = 1;
+        if (value < 0) {
+            size++;
+            value = -value;
+        }
+        while (value >= 10) {
+            value /= 10;
+            size++;
+        }
+        return size;
+    }
+}
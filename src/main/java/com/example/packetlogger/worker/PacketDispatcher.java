@@ -0,0 +1,195 @@
+package com.example.packetlogger.worker;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.filter.PacketAssembler;
+import com.example.packetlogger.filter.PacketSnapshot;
+import com.example.packetlogger.metrics.PacketMetrics;
+
+import java.io.Closeable;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs {@link PacketAssembler#emit} for request snapshots on a bounded worker pool.
+ * Snapshots that do not fit are dropped and counted instead of holding up the request thread.
+ */
+public class PacketDispatcher implements Closeable {
+
+    static final String THREAD_NAME = "packet-logger-worker-";
+    static final WorkerType DEFAULT_TYPE = WorkerType.PLATFORM;
+    static final int DEFAULT_THREADS = 2;
+    static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final Executor executor;
+    private final PacketAssembler assembler;
+    private final PacketMetrics packetMetrics;
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public PacketDispatcher(Executor executor, PacketAssembler assembler) {
+        this(executor, assembler, PacketMetrics.NOOP);
+    }
+
+    public PacketDispatcher(Executor executor, PacketAssembler assembler, PacketMetrics packetMetrics) {
+        this.executor = executor;
+        this.assembler = assembler;
+        this.packetMetrics = packetMetrics;
+    }
+
+    public static PacketDispatcher of(BaseProperties.PacketLogger options, PacketAssembler assembler, PacketMetrics packetMetrics) {
+        Optional<BaseProperties.Worker> worker = Optional.ofNullable(options.getWorker());
+        WorkerType type = worker.map(BaseProperties.Worker::getType).orElse(DEFAULT_TYPE);
+        int threads = Math.max(worker.map(BaseProperties.Worker::getThreads).orElse(DEFAULT_THREADS), 1);
+        int queueCapacity = Math.max(worker.map(BaseProperties.Worker::getQueueCapacity).orElse(DEFAULT_QUEUE_CAPACITY), 1);
+
+        Executor executor = (type == WorkerType.VIRTUAL) ? virtual(threads + queueCapacity) : null;
+        return new PacketDispatcher((executor != null) ? executor : platform(threads, queueCapacity), assembler, packetMetrics);
+    }
+
+    public void dispatch(PacketSnapshot snapshot) {
+        pending.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    assembler.emit(snapshot);
+                } catch (Exception e) {
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            rejected.increment();
+            packetMetrics.recordRejected();
+            snapshot.release();
+        }
+    }
+
+    /**
+     * For captures that hold retained buffers: the snapshot is built on the worker, and {@code release} always runs,
+     * also when the worker rejects it.
+     */
+    public void dispatch(Supplier<PacketSnapshot> snapshot, Runnable release) {
+        pending.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    assembler.emit(snapshot.get());
+                } catch (Exception e) {
+                } finally {
+                    release.run();
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            rejected.increment();
+            packetMetrics.recordRejected();
+            release.run();
+        }
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        if (executor instanceof BoundedExecutor) {
+            ((BoundedExecutor) executor).close();
+        } else if (executor instanceof ExecutorService) {
+            shutdown((ExecutorService) executor);
+        }
+    }
+
+    private static ExecutorService platform(int threads, int queueCapacity) {
+        AtomicInteger sequence = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, THREAD_NAME + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Virtual threads are looked up reflectively so the starter still runs on Java 11; {@code null} below Java 21.
+     */
+    private static Executor virtual(int permits) {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            return new BoundedExecutor(executor, permits);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static void shutdown(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A thread per task has no queue, so in-flight snapshots are bounded by permits instead.
+     */
+    static class BoundedExecutor implements Executor {
+
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+
+        BoundedExecutor(ExecutorService delegate, int permits) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(permits);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (!permits.tryAcquire()) {
+                throw new RejectedExecutionException();
+            }
+            try {
+                delegate.execute(() -> {
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        void close() {
+            shutdown(delegate);
+        }
+    }
+}
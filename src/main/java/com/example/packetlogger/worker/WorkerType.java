@@ -0,0 +1,6 @@
+package com.example.packetlogger.worker;
+
+public enum WorkerType {
+    PLATFORM,
+    VIRTUAL
+}
@@ -0,0 +1,98 @@
+package com.example.packetlogger.capture;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BufferPoolTest {
+
+    @Test
+    void arraysAreRoundedUpToTheirSizeClass() {
+        BufferPool pool = new BufferPool(64 * 1024, 1 << 20);
+
+        assertThat(pool.acquire(1)).hasSize(1024);
+        assertThat(pool.acquire(1024)).hasSize(1024);
+        assertThat(pool.acquire(1025)).hasSize(2048);
+        assertThat(pool.acquire(40_000)).hasSize(64 * 1024);
+        assertThat(pool.getIdleBytes()).isZero();
+    }
+
+    @Test
+    void releasedArrayIsReused() {
+        BufferPool pool = new BufferPool(64 * 1024, 1 << 20);
+        byte[] buffer = pool.acquire(3000);
+        pool.release(buffer);
+
+        assertThat(pool.getIdleBytes()).isEqualTo(4096);
+        assertThat(pool.acquire(2100)).isSameAs(buffer);
+        assertThat(pool.getIdleBytes()).isZero();
+        assertThat(pool.acquire(2100)).isNotSameAs(buffer);
+    }
+
+    @Test
+    void foreignArraysAreNotPooled() {
+        BufferPool pool = new BufferPool(64 * 1024, 1 << 20);
+        pool.release(null);
+        pool.release(new byte[512]);
+        pool.release(new byte[3000]);
+        pool.release(new byte[128 * 1024]);
+
+        assertThat(pool.getIdleBytes()).isZero();
+    }
+
+    @Test
+    void fullClassLeavesArraysToTheCollector() {
+        BufferPool pool = new BufferPool(1024, 2048);
+        pool.release(new byte[1024]);
+        pool.release(new byte[1024]);
+        pool.release(new byte[1024]);
+
+        assertThat(pool.getIdleBytes()).isEqualTo(2048);
+    }
+
+    @Test
+    void disabledPoolAllocatesExactSizes() {
+        BufferPool.NONE.release(new byte[1024]);
+
+        assertThat(BufferPool.NONE.acquire(1500)).hasSize(1500);
+        assertThat(BufferPool.NONE.getIdleBytes()).isZero();
+    }
+
+    @Test
+    void captureGrowsThroughThePoolAndReleasesOnce() {
+        BufferPool pool = new BufferPool(8192, 1 << 20);
+        CaptureBuffer capture = new CaptureBuffer(8192, true, pool);
+        byte[] chunk = "0123456789".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < 300; i++) {
+            capture.write(chunk, 0, chunk.length);
+        }
+
+        assertThat(capture.getBuffer()).hasSize(4096);
+        assertThat(pool.getIdleBytes()).isEqualTo(1024 + 2048);
+
+        CapturedBody body = capture.detach(StandardCharsets.UTF_8);
+        capture.release();
+        assertThat(body.getLength()).isEqualTo(3000);
+        assertThat(pool.getIdleBytes()).isEqualTo(1024 + 2048);
+
+        body.release();
+        body.release();
+        assertThat(pool.getIdleBytes()).isEqualTo(1024 + 2048 + 4096);
+        assertThat(pool.acquire(4096)).isSameAs(body.getContent());
+        assertThat(pool.acquire(4096)).isNotSameAs(body.getContent());
+    }
+
+    @Test
+    void undetachedCaptureIsReleasedOnce() {
+        BufferPool pool = new BufferPool(8192, 1 << 20);
+        CaptureBuffer capture = new CaptureBuffer(8192, true, pool);
+        capture.write(1);
+        capture.release();
+        capture.release();
+
+        assertThat(pool.getIdleBytes()).isEqualTo(1024);
+        assertThat(capture.isEnabled()).isFalse();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.packetlogger.capture;
+
+import com.example.packetlogger.config.BaseProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TailPolicyTest {
+
+    private static final long SLOW = Duration.ofMillis(500).toNanos();
+
+    @Test
+    void disabledPolicyKeepsEverything() {
+        assertThat(TailPolicy.DISABLED.keeps(200, 0)).isTrue();
+        assertThat(TailPolicy.DISABLED.hasCodes()).isFalse();
+        assertThat(TailPolicy.of(options(null)).isEnabled()).isFalse();
+        assertThat(TailPolicy.of(options(new BaseProperties.Tail(false, Duration.ofMillis(1), List.of("E1")))).isEnabled()).isFalse();
+    }
+
+    @Test
+    void successfulFastRequestsAreDropped() {
+        TailPolicy policy = new TailPolicy(true, SLOW, Collections.emptyList());
+
+        assertThat(policy.keeps(200, 0)).isFalse();
+        assertThat(policy.keeps(204, SLOW - 1)).isFalse();
+        assertThat(policy.keeps(299, SLOW - 1)).isFalse();
+    }
+
+    @Test
+    void nonSuccessStatusesAreKept() {
+        TailPolicy policy = new TailPolicy(true, SLOW, Collections.emptyList());
+
+        assertThat(policy.keeps(101, 0)).isTrue();
+        assertThat(policy.keeps(199, 0)).isTrue();
+        assertThat(policy.keeps(300, 0)).isTrue();
+        assertThat(policy.keeps(404, 0)).isTrue();
+        assertThat(policy.keeps(500, 0)).isTrue();
+    }
+
+    @Test
+    void requestsAtTheSlowThresholdAreKept() {
+        TailPolicy policy = new TailPolicy(true, SLOW, Collections.emptyList());
+
+        assertThat(policy.keeps(200, SLOW)).isTrue();
+        assertThat(policy.keeps(200, SLOW * 10)).isTrue();
+    }
+
+    @Test
+    void zeroThresholdNeverKeepsForLatency() {
+        TailPolicy policy = new TailPolicy(true, 0, Collections.emptyList());
+
+        assertThat(policy.keeps(200, Long.MAX_VALUE)).isFalse();
+    }
+
+    @Test
+    void responseCodesAreMatchedExactly() {
+        TailPolicy policy = new TailPolicy(true, SLOW, List.of("E001", "E002"));
+
+        assertThat(policy.hasCodes()).isTrue();
+        assertThat(policy.keepsCode("E001")).isTrue();
+        assertThat(policy.keepsCode("E002")).isTrue();
+        assertThat(policy.keepsCode("e001")).isFalse();
+        assertThat(policy.keepsCode("0000")).isFalse();
+        assertThat(policy.keepsCode(null)).isFalse();
+    }
+
+    @Test
+    void compiledFromOptions() {
+        TailPolicy policy = TailPolicy.of(options(new BaseProperties.Tail(true, Duration.ofMillis(500), List.of("E001"))));
+
+        assertThat(policy.isEnabled()).isTrue();
+        assertThat(policy.keeps(200, SLOW - 1)).isFalse();
+        assertThat(policy.keeps(200, SLOW)).isTrue();
+        assertThat(policy.keepsCode("E001")).isTrue();
+
+        TailPolicy defaults = TailPolicy.of(options(new BaseProperties.Tail(true, null, null)));
+        assertThat(defaults.keeps(200, Long.MAX_VALUE)).isFalse();
+        assertThat(defaults.hasCodes()).isFalse();
+    }
+
+    private static BaseProperties.PacketLogger options(BaseProperties.Tail tail) {
+        return new BaseProperties.PacketLogger(true, false, null, null, null, null, null, null, null, null, null,
+                new BaseProperties.Capture(null, null, null, tail, null), null, null, null, null, null, null);
+    }
+}
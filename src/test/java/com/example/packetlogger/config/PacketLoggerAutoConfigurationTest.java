@@ -0,0 +1,45 @@
+package com.example.packetlogger.config;
+
+import com.example.packetlogger.metrics.MicrometerPacketMetrics;
+import com.example.packetlogger.metrics.PacketMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PacketLoggerAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(JacksonAutoConfiguration.class, PacketLoggerAutoConfiguration.class))
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withPropertyValues("packet-logger.enabled=true", "packet-logger.service_name=orders");
+
+    @Test
+    void metricsAreOffByDefault() {
+        contextRunner.run(context -> {
+            assertThat(context).hasSingleBean(PacketMetrics.class);
+            assertThat(context.getBean(PacketMetrics.class)).isSameAs(PacketMetrics.NOOP);
+        });
+    }
+
+    @Test
+    void enabledMetricsReplaceTheNoopBean() {
+        contextRunner.withPropertyValues("packet-logger.metrics.enabled=true").run(context -> {
+            assertThat(context).hasSingleBean(PacketMetrics.class);
+            assertThat(context).getBean(PacketMetrics.class).isInstanceOf(MicrometerPacketMetrics.class);
+            assertThat(context.getBean(MeterRegistry.class).find("packet.logger.sink.queue").gauge()).isNotNull();
+        });
+    }
+
+    @Test
+    void enabledMetricsWithoutARegistryFallBackToNoop() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(JacksonAutoConfiguration.class, PacketLoggerAutoConfiguration.class))
+                .withPropertyValues("packet-logger.enabled=true", "packet-logger.metrics.enabled=true")
+                .run(context -> assertThat(context.getBean(PacketMetrics.class)).isSameAs(PacketMetrics.NOOP));
+    }
+}
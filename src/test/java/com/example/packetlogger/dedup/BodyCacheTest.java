@@ -0,0 +1,81 @@
+package com.example.packetlogger.dedup;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.mask.MaskedContent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BodyCacheTest {
+
+    private static final long WINDOW = Duration.ofMinutes(1).toNanos();
+
+    @Test
+    void repeatedBodyWithinTheWindowIsAHit() {
+        BodyCache cache = new BodyCache(true, 16, WINDOW, 0);
+        assertThat(cache.get(1)).isNull();
+        cache.put(1, new MaskedContent("{\"code\":\"0000\"}", "0000", "ok"));
+
+        MaskedContent hit = cache.get(1);
+        assertThat(hit.getContent()).isNull();
+        assertThat(hit.getCode()).isEqualTo("0000");
+        assertThat(hit.getMessage()).isEqualTo("ok");
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void bodyIsLoggedInFullAgainOnceTheWindowHasPassed() throws InterruptedException {
+        BodyCache cache = new BodyCache(true, 16, Duration.ofMillis(20).toNanos(), 0);
+        cache.put(1, new MaskedContent("body", null, null));
+        assertThat(cache.get(1)).isNotNull();
+
+        Thread.sleep(50);
+        assertThat(cache.get(1)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void leastRecentlySeenFingerprintIsEvicted() {
+        BodyCache cache = new BodyCache(true, 2, WINDOW, 0);
+        cache.put(1, new MaskedContent("one", null, null));
+        cache.put(2, new MaskedContent("two", null, null));
+        assertThat(cache.get(1)).isNotNull();
+        cache.put(3, new MaskedContent("three", null, null));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(2)).isNull();
+        assertThat(cache.get(1)).isNotNull();
+        assertThat(cache.get(3)).isNotNull();
+    }
+
+    @Test
+    void smallTruncatedOrDisabledBodiesAreNotDeduplicated() {
+        BodyCache cache = new BodyCache(true, 16, WINDOW, 256);
+
+        assertThat(cache.accepts(256, false)).isTrue();
+        assertThat(cache.accepts(255, false)).isFalse();
+        assertThat(cache.accepts(4096, true)).isFalse();
+        assertThat(BodyCache.DISABLED.accepts(4096, false)).isFalse();
+    }
+
+    @Test
+    void compiledFromOptions() {
+        assertThat(BodyCache.of(options(null)).isEnabled()).isFalse();
+        assertThat(BodyCache.of(options(new BaseProperties.Dedup(false, 10, null, null))).isEnabled()).isFalse();
+
+        BodyCache cache = BodyCache.of(options(new BaseProperties.Dedup(true, 0, null, null)));
+        assertThat(cache.isEnabled()).isTrue();
+        assertThat(cache.accepts((int) BodyCache.DEFAULT_MIN_SIZE.toBytes(), false)).isTrue();
+        cache.put(1, new MaskedContent("one", null, null));
+        cache.put(2, new MaskedContent("two", null, null));
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    private static BaseProperties.PacketLogger options(BaseProperties.Dedup dedup) {
+        return new BaseProperties.PacketLogger(true, false, null, null, null, null, null, null, null, null, null,
+                null, null, null, null, null, null, dedup);
+    }
+}
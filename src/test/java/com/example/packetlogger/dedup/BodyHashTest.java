@@ -0,0 +1,55 @@
+package com.example.packetlogger.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BodyHashTest {
+
+    @Test
+    void matchesPublishedVectors() {
+        assertThat(hash("", 0)).isEqualTo(0xEF46DB3751D8E999L);
+        assertThat(hash("a", 0)).isEqualTo(0xD24EC4F1A98C6E5BL);
+        assertThat(hash("abc", 0)).isEqualTo(0x44BC2CF5AD770999L);
+        assertThat(hash("xxhash", 0)).isEqualTo(0x32DD38952C4BC720L);
+        assertThat(hash("xxhash", 20141025)).isEqualTo(0xB559B98D844E0635L);
+        assertThat(hash("Nobody inspects the spammish repetition", 0)).isEqualTo(0xFBCEA83C8A378BF1L);
+    }
+
+    /**
+     * Three stripes plus 8, 4 and 1 byte tails; the value comes from an independent implementation of the XXH64 spec.
+     */
+    @Test
+    void coversEveryTailLength() {
+        byte[] content = new byte[100];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+
+        assertThat(BodyHash.hash(content, content.length, 0)).isEqualTo(0x6AC1E58032166597L);
+    }
+
+    @Test
+    void onlyTheFirstLengthBytesCount() {
+        byte[] content = "xxhash and whatever follows".getBytes(StandardCharsets.UTF_8);
+        byte[] padded = Arrays.copyOf("xxhash".getBytes(StandardCharsets.UTF_8), 4096);
+
+        assertThat(BodyHash.hash(content, 6, 0)).isEqualTo(0x32DD38952C4BC720L);
+        assertThat(BodyHash.hash(padded, 6, 0)).isEqualTo(0x32DD38952C4BC720L);
+    }
+
+    @Test
+    void hexIsFixedWidth() {
+        assertThat(BodyHash.toHex(0x32DD38952C4BC720L)).isEqualTo("32dd38952c4bc720");
+        assertThat(BodyHash.toHex(0xFL)).isEqualTo("000000000000000f");
+        assertThat(BodyHash.toHex(-1L)).isEqualTo("ffffffffffffffff");
+    }
+
+    private static long hash(String text, long seed) {
+        byte[] content = text.getBytes(StandardCharsets.UTF_8);
+        return BodyHash.hash(content, content.length, seed);
+    }
+}
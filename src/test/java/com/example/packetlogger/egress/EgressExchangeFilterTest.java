@@ -0,0 +1,100 @@
+package com.example.packetlogger.egress;
+
+import com.example.packetlogger.aggregate.PacketAggregator;
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.dedup.BodyCache;
+import com.example.packetlogger.filter.PacketAssembler;
+import com.example.packetlogger.metrics.PacketMetrics;
+import com.example.packetlogger.plan.PacketPlanHolder;
+import com.example.packetlogger.reactive.ReactiveLoggerFilter;
+import com.example.packetlogger.sampling.PacketSampler;
+import com.example.packetlogger.sink.PacketSink;
+import com.example.packetlogger.worker.PacketDispatcher;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EgressExchangeFilterTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final List<String> records = new CopyOnWriteArrayList<>();
+    private final PacketSink packetSink = record -> records.add(new String(record, StandardCharsets.UTF_8));
+    private final BaseProperties.PacketLogger options = new BaseProperties.PacketLogger(true, false, "orders", Collections.emptyList(),
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), null,
+            null, null, null, null, null, null, null, null, null);
+    private final PacketPlanHolder packetPlans = PacketPlanHolder.of(options, objectMapper.getFactory());
+    private final PacketAssembler packetAssembler = new PacketAssembler(packetPlans, packetSink, PacketMetrics.NOOP, BodyCache.DISABLED);
+    private final List<String> propagated = new CopyOnWriteArrayList<>();
+    private final ExchangeFunction rates = request -> {
+        propagated.add(request.headers().getFirst(EgressRecorder.B3_TRACE_ID));
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"rate\":1.5}")
+                .build());
+    };
+    private final ExchangeFunction client = new EgressExchangeFilter(new EgressRecorder(packetPlans,
+            new PacketDispatcher(Runnable::run, packetAssembler, PacketMetrics.NOOP))).apply(rates);
+    private final ReactiveLoggerFilter reactiveLoggerFilter = new ReactiveLoggerFilter(packetPlans, new PacketSampler(Collections.emptyList()),
+            packetAssembler, new PacketAggregator(Collections.emptyList(), Duration.ofHours(1), null, packetSink), PacketMetrics.NOOP,
+            Schedulers.immediate());
+
+    @Test
+    void incomingTraceIdIsPropagatedAndRecordedOnBothSides() throws IOException {
+        serve(MockServerHttpRequest.get("/api/quotes").header(EgressRecorder.B3_TRACE_ID, "463ac35c9f6413ad"));
+
+        assertThat(propagated).containsExactly("463ac35c9f6413ad");
+        assertThat(transactionId("ingress")).isEqualTo("463ac35c9f6413ad");
+        assertThat(transactionId("egress")).isEqualTo("463ac35c9f6413ad");
+    }
+
+    @Test
+    void traceIdPickedAtIngressIsSharedWithTheCall() throws IOException {
+        serve(MockServerHttpRequest.get("/api/quotes"));
+
+        String traceId = transactionId("ingress");
+        assertThat(traceId).isNotBlank();
+        assertThat(propagated).containsExactly(traceId);
+        assertThat(transactionId("egress")).isEqualTo(traceId);
+    }
+
+    private void serve(MockServerHttpRequest.BaseBuilder<?> request) {
+        reactiveLoggerFilter.filter(MockServerWebExchange.from(request), exchange -> client
+                        .exchange(ClientRequest.create(HttpMethod.GET, URI.create("http://rates.example.com/v1/rates")).build())
+                        .flatMap(response -> response.bodyToMono(String.class))
+                        .then(exchange.getResponse().setComplete()))
+                .block(Duration.ofSeconds(5));
+    }
+
+    private String transactionId(String direction) throws IOException {
+        assertThat(records).hasSize(2);
+        for (String record : records) {
+            JsonNode node = objectMapper.readTree(record);
+            if (direction.equals(node.at("/network/direction").asText())) {
+                return node.at("/http/request/transaction_id").asText();
+            }
+        }
+        throw new AssertionError("no " + direction + " record in " + records);
+    }
+}
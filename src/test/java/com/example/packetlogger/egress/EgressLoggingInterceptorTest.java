@@ -0,0 +1,119 @@
+package com.example.packetlogger.egress;
+
+import com.example.packetlogger.aggregate.PacketAggregator;
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.dedup.BodyCache;
+import com.example.packetlogger.filter.LoggerFilter;
+import com.example.packetlogger.filter.PacketAssembler;
+import com.example.packetlogger.metrics.PacketMetrics;
+import com.example.packetlogger.plan.PacketPlanHolder;
+import com.example.packetlogger.sampling.PacketSampler;
+import com.example.packetlogger.sink.PacketSink;
+import com.example.packetlogger.worker.PacketDispatcher;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class EgressLoggingInterceptorTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final List<String> records = new CopyOnWriteArrayList<>();
+    private final PacketSink packetSink = record -> records.add(new String(record, StandardCharsets.UTF_8));
+    private final BaseProperties.PacketLogger options = new BaseProperties.PacketLogger(true, false, "orders", Collections.emptyList(),
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), null,
+            null, null, null, null, null, null, null, null, null);
+    private final PacketPlanHolder packetPlans = PacketPlanHolder.of(options, objectMapper.getFactory());
+    private final PacketDispatcher packetDispatcher = new PacketDispatcher(Runnable::run,
+            new PacketAssembler(packetPlans, packetSink, PacketMetrics.NOOP, BodyCache.DISABLED), PacketMetrics.NOOP);
+    private final List<String> propagated = new ArrayList<>();
+    private final RestTemplate restTemplate = restTemplate();
+    private final MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new TestController(restTemplate))
+            .addFilters(new LoggerFilter(packetPlans, new PacketSampler(Collections.emptyList()), PacketMetrics.NOOP, packetDispatcher,
+                    new PacketAggregator(Collections.emptyList(), Duration.ofHours(1), null, packetSink)))
+            .build();
+
+    @Test
+    void incomingTraceIdIsPropagatedAndRecordedOnBothSides() throws Exception {
+        expectCall();
+
+        mockMvc.perform(get("/api/quotes").servletPath("/api/quotes").header(EgressRecorder.B3_TRACE_ID, "463ac35c9f6413ad"));
+
+        server.verify();
+        assertThat(propagated).containsExactly("463ac35c9f6413ad");
+        assertThat(transactionId("ingress")).isEqualTo("463ac35c9f6413ad");
+        assertThat(transactionId("egress")).isEqualTo("463ac35c9f6413ad");
+    }
+
+    @Test
+    void traceIdPickedAtIngressIsSharedWithTheCall() throws Exception {
+        expectCall();
+
+        mockMvc.perform(get("/api/quotes").servletPath("/api/quotes"));
+
+        server.verify();
+        String traceId = transactionId("ingress");
+        assertThat(traceId).isNotBlank();
+        assertThat(propagated).containsExactly(traceId);
+        assertThat(transactionId("egress")).isEqualTo(traceId);
+    }
+
+    private void expectCall() {
+        server.expect(requestTo("http://rates.example.com/v1/rates"))
+                .andExpect(request -> propagated.add(request.getHeaders().getFirst(EgressRecorder.B3_TRACE_ID)))
+                .andRespond(withSuccess("{\"rate\":1.5}", MediaType.APPLICATION_JSON));
+    }
+
+    private String transactionId(String direction) throws IOException {
+        assertThat(records).hasSize(2);
+        for (String record : records) {
+            JsonNode node = objectMapper.readTree(record);
+            if (direction.equals(node.at("/network/direction").asText())) {
+                return node.at("/http/request/transaction_id").asText();
+            }
+        }
+        throw new AssertionError("no " + direction + " record in " + records);
+    }
+
+    private RestTemplate restTemplate() {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(new EgressLoggingInterceptor(new EgressRecorder(packetPlans, packetDispatcher)));
+        return restTemplate;
+    }
+
+    @RestController
+    static class TestController {
+
+        private final RestTemplate restTemplate;
+
+        TestController(RestTemplate restTemplate) {
+            this.restTemplate = restTemplate;
+        }
+
+        @GetMapping("/api/quotes")
+        String quotes() {
+            return restTemplate.getForObject("http://rates.example.com/v1/rates", String.class);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.packetlogger.filter;
+
+import com.example.packetlogger.aggregate.PacketAggregator;
+import com.example.packetlogger.aggregate.RouteSummary;
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.dedup.BodyCache;
+import com.example.packetlogger.metrics.PacketMetrics;
+import com.example.packetlogger.plan.PacketPlanHolder;
+import com.example.packetlogger.sampling.PacketSampler;
+import com.example.packetlogger.sink.PacketSink;
+import com.example.packetlogger.worker.PacketDispatcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class LoggerFilterTest {
+
+    private static final String ASYNC_BODY = "비동기 응답 " + "x".repeat(100);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final List<String> records = new CopyOnWriteArrayList<>();
+    private final PacketSink packetSink = record -> records.add(new String(record, StandardCharsets.UTF_8));
+    private final BaseProperties.PacketLogger options = new BaseProperties.PacketLogger(true, false, "orders", Collections.emptyList(),
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), null,
+            null, null, null, null, null, null, null, null, null);
+    private final PacketPlanHolder packetPlans = PacketPlanHolder.of(options, objectMapper.getFactory());
+    private final PacketAggregator packetAggregator = new PacketAggregator(List.of("/aggregated/writer", "/aggregated/stream", "/aggregated/head"),
+            Duration.ofHours(1), null, packetSink);
+    private final PacketDispatcher packetDispatcher = new PacketDispatcher(Runnable::run,
+            new PacketAssembler(packetPlans, packetSink, PacketMetrics.NOOP, BodyCache.DISABLED), PacketMetrics.NOOP);
+    private volatile boolean completed;
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new TestController())
+            .addFilters(this::completeLikeAContainer, new LoggerFilter(packetPlans, new PacketSampler(Collections.emptyList()), PacketMetrics.NOOP, packetDispatcher, packetAggregator))
+            .build();
+
+    @AfterEach
+    void close() {
+        packetAggregator.close();
+    }
+
+    @Test
+    void aggregatedRouteCountsBytesWrittenThroughTheWriter() throws Exception {
+        mockMvc.perform(get("/aggregated/writer").servletPath("/aggregated/writer")).andExpect(content().string("héllo wörld"));
+
+        assertThat(summary("/aggregated/writer").getResponseBytes()).isEqualTo("héllo wörld".getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void aggregatedRouteCountsBytesWrittenToTheStream() throws Exception {
+        mockMvc.perform(get("/aggregated/stream").servletPath("/aggregated/stream"));
+
+        assertThat(summary("/aggregated/stream").getResponseBytes()).isEqualTo(3000);
+    }
+
+    @Test
+    void aggregatedHeadResponseFallsBackToContentLength() throws Exception {
+        mockMvc.perform(head("/aggregated/head").servletPath("/aggregated/head"));
+
+        assertThat(summary("/aggregated/head").getResponseBytes()).isEqualTo(1234);
+    }
+
+    @Test
+    void deferredResultWrittenThroughTheWriterIsCaptured() throws Exception {
+        assertThat(asyncRecord("/async/deferred")).isEqualTo(ASYNC_BODY);
+    }
+
+    @Test
+    void callableWrittenThroughTheWriterIsCaptured() throws Exception {
+        assertThat(asyncRecord("/async/callable")).isEqualTo(ASYNC_BODY);
+    }
+
+    @Test
+    void streamingResponseBodyIsCaptured() throws Exception {
+        assertThat(asyncRecord("/async/streaming")).isEqualTo(ASYNC_BODY);
+    }
+
+    /**
+     * Text left in the writer reaches the client and the capture only if it is flushed before the container completes
+     * the response, which it does once the async dispatch returns.
+     */
+    private String asyncRecord(String path) throws Exception {
+        MvcResult result = mockMvc.perform(get(path).servletPath(path)).andExpect(request().asyncStarted()).andReturn();
+        assertThat(records).isEmpty();
+
+        mockMvc.perform(asyncDispatch(result)).andExpect(content().string(ASYNC_BODY));
+
+        assertThat(records).hasSize(1);
+        return objectMapper.readTree(records.get(0)).at("/http/response/body/content").asText();
+    }
+
+    private void completeLikeAContainer(ServletRequest request, ServletResponse response, FilterChain filterChain) throws IOException, ServletException {
+        boolean initial = request.getDispatcherType() == DispatcherType.REQUEST;
+        filterChain.doFilter(request, initial ? new CompletableResponse((HttpServletResponse) response) : response);
+        if (!request.isAsyncStarted()) {
+            completed = true;
+        }
+    }
+
+    private RouteSummary summary(String pattern) {
+        assertThat(records).isEmpty();
+        return packetAggregator.route(pattern).drain();
+    }
+
+    /**
+     * Rejects body writes once the response is completed, as a container does.
+     */
+    private class CompletableResponse extends HttpServletResponseWrapper {
+
+        private ServletOutputStream outputStream;
+
+        CompletableResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream delegate = getResponse().getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        write(new byte[]{(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        if (completed) {
+                            throw new IOException("response already completed");
+                        }
+                        delegate.write(b, off, len);
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        delegate.setWriteListener(writeListener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+    }
+
+    @RestController
+    static class TestController {
+
+        @GetMapping("/aggregated/writer")
+        void writer(HttpServletResponse response) throws IOException {
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("héllo wörld");
+        }
+
+        @GetMapping("/aggregated/stream")
+        void stream(HttpServletResponse response) throws IOException {
+            response.setContentType("application/octet-stream");
+            for (int i = 0; i < 3; i++) {
+                response.getOutputStream().write(new byte[1000]);
+            }
+        }
+
+        @RequestMapping(path = "/aggregated/head", method = RequestMethod.HEAD)
+        void head(HttpServletResponse response) {
+            response.setHeader(HttpHeaders.CONTENT_LENGTH, "1234");
+        }
+
+        @GetMapping("/async/deferred")
+        DeferredResult<View> deferred() {
+            DeferredResult<View> result = new DeferredResult<>();
+            new Thread(() -> result.setResult(writerView())).start();
+            return result;
+        }
+
+        @GetMapping("/async/callable")
+        Callable<View> callable() {
+            return TestController::writerView;
+        }
+
+        @GetMapping("/async/streaming")
+        ResponseEntity<StreamingResponseBody> streaming() {
+            return ResponseEntity.ok()
+                    .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                    .body(outputStream -> {
+                        byte[] body = ASYNC_BODY.getBytes(StandardCharsets.UTF_8);
+                        outputStream.write(body, 0, 10);
+                        outputStream.write(body, 10, body.length - 10);
+                    });
+        }
+
+        /**
+         * Writes without flushing, leaving the text in the writer's buffer.
+         */
+        private static View writerView() {
+            return (model, request, response) -> {
+                response.setContentType("text/plain;charset=UTF-8");
+                response.getWriter().write(ASYNC_BODY);
+            };
+        }
+    }
+}
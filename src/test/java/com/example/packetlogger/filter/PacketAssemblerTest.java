@@ -0,0 +1,105 @@
+package com.example.packetlogger.filter;
+
+import com.example.packetlogger.capture.BufferPool;
+import com.example.packetlogger.capture.CapturedBody;
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.dedup.BodyCache;
+import com.example.packetlogger.metrics.PacketMetrics;
+import com.example.packetlogger.plan.PacketPlanHolder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PacketAssemblerTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final BaseProperties.PacketLogger options = new BaseProperties.PacketLogger(true, false, "orders", List.of("password"),
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), null,
+            null, null, null, null, null, null, null, null, null);
+    private final List<byte[]> records = new ArrayList<>();
+    private final PacketAssembler packetAssembler = new PacketAssembler(PacketPlanHolder.of(options, objectMapper.getFactory()),
+            records::add, PacketMetrics.NOOP, BodyCache.DISABLED);
+
+    @Test
+    void jsonBodyIsMaskedIgnoringCase() throws IOException {
+        JsonNode record = emit("application/json", "{\"PassWord\":\"hunter2\"}", false);
+
+        assertThat(record.at("/http/request/body/content").asText()).isEqualTo("{\"PassWord\":\"xxxx\"}");
+        assertThat(record.at("/http/response/body/content").asText()).isEqualTo("{\"PassWord\":\"xxxx\"}");
+    }
+
+    @Test
+    void truncatedJsonBodyIsMasked() throws IOException {
+        JsonNode record = emit("application/json", "{\"password\":\"hunter2\",\"note\":\"abc", true);
+
+        assertThat(record.at("/http/response/body/content").asText()).contains("xxxx").doesNotContain("hunter2");
+    }
+
+    @Test
+    void malformedJsonBodyFallsBackToTextMasking() throws IOException {
+        JsonNode record = emit("application/json", "{\"Password\":\"hunter2\",,}", false);
+
+        assertThat(record.at("/http/response/body/content").asText()).isEqualTo("{\"Password\":\"xxxx\",,}");
+    }
+
+    @Test
+    void plainTextBodyIsMasked() throws IOException {
+        JsonNode record = emit("text/plain", "user=kim PASSWORD=hunter2", false);
+
+        assertThat(record.at("/http/request/body/content").asText()).isEqualTo("user=kim PASSWORD=xxxx");
+        assertThat(record.at("/http/response/body/content").asText()).isEqualTo("user=kim PASSWORD=xxxx");
+    }
+
+    @Test
+    void bodyWithoutAContentTypeIsMasked() throws IOException {
+        JsonNode record = emit(null, "password: hunter2", false);
+
+        assertThat(record.at("/http/response/body/content").asText()).isEqualTo("password: xxxx");
+    }
+
+    @Test
+    void formAndXmlBodiesIgnoreCase() throws IOException {
+        assertThat(emit("application/x-www-form-urlencoded", "Password=hunter2&a=b", false).at("/http/response/body/content").asText())
+                .isEqualTo("Password=xxxx&a=b");
+        assertThat(emit("application/xml", "<r><PASSWORD>hunter2</PASSWORD></r>", false).at("/http/response/body/content").asText())
+                .isEqualTo("<r><PASSWORD>xxxx</PASSWORD></r>");
+    }
+
+    private JsonNode emit(String contentType, String body, boolean truncated) throws IOException {
+        records.clear();
+        packetAssembler.emit(PacketSnapshot.builder()
+                .start(LocalDateTime.of(2024, 3, 1, 0, 0))
+                .end(LocalDateTime.of(2024, 3, 1, 0, 0, 1))
+                .method("POST")
+                .path("/api/login")
+                .url("http://localhost/api/login")
+                .requestHeaders(new HashMap<>())
+                .responseHeaders(new HashMap<>())
+                .requestContentType(contentType)
+                .responseContentType(contentType)
+                .status(200)
+                .patternMap(new PacketDto.PatternMap("/api/login", null))
+                .requestBody(capture(body, truncated))
+                .responseBody(capture(body, truncated))
+                .build());
+
+        assertThat(records).hasSize(1);
+        return objectMapper.readTree(records.get(0));
+    }
+
+    private static CapturedBody capture(String body, boolean truncated) {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        return new CapturedBody(content, content.length, content.length * (truncated ? 2L : 1L), truncated, StandardCharsets.UTF_8, BufferPool.NONE);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.packetlogger.filter;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.dedup.BodyCache;
+import com.example.packetlogger.metrics.PacketMetrics;
+import com.example.packetlogger.plan.PacketPlanHolder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PacketEncoderTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final BaseProperties.PacketLogger options = new BaseProperties.PacketLogger(true, false, "orders", List.of("password"),
+            List.of("x-request-id"), List.of("x-trace"), Collections.emptyList(), Collections.emptyList(), "blue",
+            null, null, null, null, null, null, null, null, null);
+    private final PacketPlanHolder packetPlans = PacketPlanHolder.of(options, objectMapper.getFactory());
+    private final PacketAssembler packetAssembler = new PacketAssembler(packetPlans, null, PacketMetrics.NOOP, BodyCache.DISABLED);
+
+    @Test
+    void capturedBodies() throws IOException {
+        assertSameBytes(snapshot("/api/orders/1", "?expand=\"lines\"", 200).build(),
+                body(42, "{\"id\":1,\"note\":\"café\"}", false, null),
+                body(128, "{\"code\":\"0000\",\"message\":\"정상\"}", false, null),
+                "0000", "ok");
+    }
+
+    @Test
+    void apiTypeIsTheThirdSplitSegment() {
+        for (String path : List.of("", "/", "//", "///", "/api", "/api/", "/api//", "/api//x", "/api/v1", "/api/v1/",
+                "/api/v1/orders", "api/v1/orders", "//v1", "/api/v1//", "a/b", "a//")) {
+            String[] segments = path.split("/");
+            assertThat(PacketEncoder.apiType(path)).as(path).isEqualTo((segments.length > 2) ? segments[2] : null);
+        }
+    }
+
+    @Test
+    void nullBodiesAndFields() throws IOException {
+        Map<String, Object> requestHeaders = new HashMap<>();
+        requestHeaders.put("x-request-id", null);
+        PacketSnapshot snapshot = snapshot("/health", null, 503)
+                .method("PROPFIND")
+                .requestHeaders(requestHeaders)
+                .forwardedFor(null)
+                .userAgent(null)
+                .transactionId(null)
+                .patternMap(new PacketDto.PatternMap("/health", null))
+                .build();
+
+        assertSameBytes(snapshot, body(0, null, false, null), body(0, null, false, null), null, null);
+    }
+
+    @Test
+    void truncatedAndUncapturedBodies() throws IOException {
+        assertSameBytes(snapshot("/api/files", "", 413).build(),
+                body(1 << 20, "{\"chunk\":\"abc", true, null),
+                body(4096, "", true, null),
+                null, null);
+    }
+
+    @Test
+    void hashOnlyBody() throws IOException {
+        assertSameBytes(snapshot("/api/catalog", "?page=2", 200).build(),
+                body(0, "", false, null),
+                body(9000, null, false, "5f0c2a9e81d3b7c4"),
+                "0000", null);
+    }
+
+    @Test
+    void egressDirection() throws IOException {
+        assertSameBytes(snapshot("/v1/rates", null, 200).direction(Direction.EGRESS).build(),
+                body(0, "", false, null), body(12, "{\"rate\":1.5}", false, null), null, null);
+    }
+
+    private void assertSameBytes(PacketSnapshot snapshot, PacketDto.Body requestBody, PacketDto.Body responseBody, String code, String message) throws IOException {
+        byte[] expected = objectMapper.writeValueAsBytes(packetAssembler.assemble(snapshot, requestBody, responseBody, code, message));
+        byte[] encoded = packetPlans.get().getPacketEncoder()
+                .encode(snapshot, packetAssembler.responseHeaders(snapshot, responseBody), requestBody, responseBody, code, message);
+
+        assertThat(new String(encoded, StandardCharsets.UTF_8)).isEqualTo(new String(expected, StandardCharsets.UTF_8));
+        assertThat(encoded).isEqualTo(expected);
+    }
+
+    private PacketSnapshot.PacketSnapshotBuilder snapshot(String path, String query, int status) {
+        Map<String, Object> requestHeaders = new HashMap<>();
+        requestHeaders.put("x-request-id", "r-1");
+        Map<String, Object> responseHeaders = new HashMap<>();
+        responseHeaders.put("x-trace", "t\"1");
+        return PacketSnapshot.builder()
+                .start(LocalDateTime.of(2024, 2, 29, 23, 59, 58, 7_000_000))
+                .end(LocalDateTime.of(2024, 3, 1, 0, 0, 0, 123_456_789))
+                .duration(2_116_456_789L)
+                .method("POST")
+                .path(path)
+                .url("http://localhost:8080" + path)
+                .queryString(query)
+                .remoteAddr("10.0.0.7")
+                .remotePort(51234)
+                .serverName("localhost")
+                .forwardedFor("203.0.113.9, 10.0.0.1")
+                .userAgent("curl/8.0")
+                .referrer("http://localhost/ä")
+                .transactionId("463ac35c9f6413ad")
+                .requestHeaders(requestHeaders)
+                .responseHeaders(responseHeaders)
+                .responseContentType("application/json")
+                .status(status)
+                .patternMap(new PacketDto.PatternMap("/api/orders/{id}", "id=1"));
+    }
+
+    private PacketDto.Body body(int bytes, String content, boolean truncated, String hash) {
+        return PacketDto.Body.builder()
+                .bytes(bytes)
+                .content(content)
+                .truncated(truncated)
+                .hash(hash)
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.packetlogger.filter;
+
+import com.example.packetlogger.capture.BufferPool;
+import com.example.packetlogger.capture.CaptureBuffer;
+import com.example.packetlogger.capture.TailPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PacketSnapshotTest {
+
+    private final BufferPool bufferPool = new BufferPool(4096, 1 << 20);
+
+    @Test
+    void keptBodiesAreDetached() {
+        CaptureBuffer request = capture("{\"a\":1}");
+        CaptureBuffer response = capture("{\"b\":2}");
+        PacketSnapshot.PacketSnapshotBuilder snapshot = PacketSnapshot.builder().status(500).duration(1);
+
+        assertThat(snapshot.keepsBodies(policy(List.of()), request, response)).isTrue();
+        PacketSnapshot built = snapshot.detach(request, StandardCharsets.UTF_8, response, StandardCharsets.UTF_8).build();
+
+        assertThat(built.isTail()).isFalse();
+        assertThat(built.getRequestBody().getTotal()).isEqualTo(7);
+        assertThat(built.getResponseBody().getTotal()).isEqualTo(7);
+        assertThat(bufferPool.getIdleBytes()).isZero();
+        built.release();
+        assertThat(bufferPool.getIdleBytes()).isEqualTo(2048);
+    }
+
+    @Test
+    void bodiesWaitForTheirCodeWhenCodesAreConfigured() {
+        CaptureBuffer request = capture("req");
+        CaptureBuffer response = capture("res");
+        PacketSnapshot.PacketSnapshotBuilder snapshot = PacketSnapshot.builder().status(200).duration(1);
+
+        assertThat(snapshot.keepsBodies(policy(List.of("E001")), request, response)).isTrue();
+
+        assertThat(snapshot.build().isTail()).isTrue();
+    }
+
+    @Test
+    void rejectedBodiesKeepOnlyTheirSizes() {
+        CaptureBuffer request = capture("request body");
+        CaptureBuffer response = capture("response");
+        PacketSnapshot.PacketSnapshotBuilder snapshot = PacketSnapshot.builder().status(200).duration(1).requestContentLength(-1);
+
+        assertThat(snapshot.keepsBodies(policy(List.of()), request, response)).isFalse();
+        PacketSnapshot built = snapshot.build();
+
+        assertThat(built.getRequestBody()).isNull();
+        assertThat(built.getRequestContentLength()).isEqualTo(12);
+        assertThat(built.getResponseContentLength()).isEqualTo(8);
+        assertThat(bufferPool.getIdleBytes()).isEqualTo(2048);
+    }
+
+    @Test
+    void defaultsToIngress() {
+        assertThat(PacketSnapshot.builder().build().getDirection()).isEqualTo(Direction.INGRESS);
+        assertThat(PacketSnapshot.builder().direction(Direction.EGRESS).build().toBuilder().build().getDirection()).isEqualTo(Direction.EGRESS);
+    }
+
+    private TailPolicy policy(List<String> codes) {
+        return new TailPolicy(true, Duration.ofSeconds(1).toNanos(), codes);
+    }
+
+    private CaptureBuffer capture(String body) {
+        CaptureBuffer capture = new CaptureBuffer(1024, true, bufferPool);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        capture.write(bytes, 0, bytes.length);
+        return capture;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.packetlogger.format;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.filter.Direction;
+import com.example.packetlogger.filter.PacketDto;
+import com.example.packetlogger.filter.PacketEncoder;
+import com.example.packetlogger.filter.PacketSnapshot;
+import com.example.packetlogger.sink.FsyncPolicy;
+import com.example.packetlogger.sink.SegmentFileWriter;
+import com.example.packetlogger.sink.SegmentReader;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecordDecoderTest {
+
+    private final JsonFactory json = new JsonFactory();
+    private final BaseProperties.PacketLogger options = new BaseProperties.PacketLogger(true, false, "orders", List.of("password"),
+            List.of("x-request-id"), List.of("x-trace"), List.of(), List.of(), "blue",
+            null, null, null, null, null, null, null, null, null);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void jsonRecordsAreCopiedAsIs() throws IOException {
+        byte[] record = encode(RecordFormat.JSON, 0);
+
+        assertThat(decode(record)).isEqualTo(line(record));
+    }
+
+    @Test
+    void smileRecordsDecodeToTheJsonEncoding() throws IOException {
+        byte[] smile = encode(RecordFormat.SMILE, 0);
+
+        assertThat(RecordFormats.detect(smile, 0, smile.length)).isEqualTo(RecordFormat.SMILE);
+        assertThat(decode(smile)).isEqualTo(line(encode(RecordFormat.JSON, 0)));
+    }
+
+    @Test
+    void cborRecordsDecodeToTheJsonEncoding() throws IOException {
+        byte[] cbor = encode(RecordFormat.CBOR, 0);
+
+        assertThat(RecordFormats.detect(cbor, 0, cbor.length)).isEqualTo(RecordFormat.CBOR);
+        assertThat(decode(cbor)).isEqualTo(line(encode(RecordFormat.JSON, 0)));
+    }
+
+    @Test
+    void gzipBlockIsReadBackThroughTheSegmentReader() throws IOException {
+        assertBlockRoundTrip(Compression.GZIP, RecordFormat.SMILE);
+    }
+
+    @Test
+    void lz4BlockIsReadBackThroughTheSegmentReader() throws IOException {
+        assertBlockRoundTrip(Compression.LZ4, RecordFormat.CBOR);
+    }
+
+    @Test
+    void uncompressedBlockHoldsEveryRecord() throws IOException {
+        byte[] first = encode(RecordFormat.JSON, 0);
+        byte[] second = encode(RecordFormat.SMILE, 1);
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(raw);
+        for (byte[] record : List.of(first, second)) {
+            data.writeInt(record.length);
+            data.write(record);
+        }
+        byte[] block = Blocks.encode(Compression.NONE, raw.toByteArray(), raw.size());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(new RecordDecoder().decode(block, 0, block.length, out)).isEqualTo(2);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(line(first) + line(encode(RecordFormat.JSON, 1)));
+    }
+
+    private void assertBlockRoundTrip(Compression compression, RecordFormat format) throws IOException {
+        BlockRecordWriter writer = new BlockRecordWriter(
+                new SegmentFileWriter(directory, "packet", 1 << 16, Duration.ZERO, FsyncPolicy.NEVER), compression);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            writer.append(encode(format, i));
+            expected.append(line(encode(RecordFormat.JSON, i)));
+        }
+        writer.flush();
+        writer.append(encode(format, 3));
+        expected.append(line(encode(RecordFormat.JSON, 3)));
+        writer.close();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(SegmentReader.export(directory, "packet", out)).isEqualTo(4);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(expected.toString());
+    }
+
+    private byte[] encode(RecordFormat format, int n) throws IOException {
+        Map<String, Object> requestHeaders = new HashMap<>();
+        requestHeaders.put("x-request-id", "r-" + n);
+        Map<String, Object> responseHeaders = new HashMap<>();
+        responseHeaders.put("x-trace", null);
+        responseHeaders.put("content-length", 48);
+        PacketSnapshot snapshot = PacketSnapshot.builder()
+                .start(LocalDateTime.of(2024, 2, 29, 23, 59, 58, 7_000_000))
+                .end(LocalDateTime.of(2024, 3, 1, 0, 0, 0, 123_456_789))
+                .duration(2_116_456_789L + n)
+                .method("POST")
+                .path("/api/orders/" + n)
+                .url("http://localhost:8080/api/orders/" + n)
+                .queryString("expand=\"lines\"&q=한글")
+                .remoteAddr("10.0.0.7")
+                .remotePort(51234)
+                .serverName("localhost")
+                .forwardedFor("203.0.113.9, 10.0.0.1")
+                .userAgent("curl/8.0")
+                .transactionId("463ac35c9f6413ad")
+                .requestHeaders(requestHeaders)
+                .responseHeaders(responseHeaders)
+                .responseContentType("application/json")
+                .status((n % 2 == 0) ? 200 : 503)
+                .direction((n == 3) ? Direction.EGRESS : Direction.INGRESS)
+                .patternMap(new PacketDto.PatternMap("/api/orders/{id}", "id=" + n))
+                .build();
+        PacketDto.Body requestBody = PacketDto.Body.builder().bytes(42).content("{\"id\":" + n + ",\"note\":\"café\"}").build();
+        PacketDto.Body responseBody = PacketDto.Body.builder().bytes(1 << 20).content("{\"code\":\"0000\"").truncated(true).hash("5f0c2a9e81d3b7c4").build();
+        return new PacketEncoder(RecordFormats.factory(format, json), options)
+                .encode(snapshot, responseHeaders, requestBody, responseBody, "0000", (n == 1) ? null : "정상");
+    }
+
+    private static String decode(byte[] record) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(new RecordDecoder().decode(record, 0, record.length, out)).isEqualTo(1);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String line(byte[] json) {
+        assertThat(Arrays.copyOf(json, 1)).isEqualTo(new byte[]{'{'});
+        return new String(json, StandardCharsets.UTF_8) + "\n";
+    }
+}
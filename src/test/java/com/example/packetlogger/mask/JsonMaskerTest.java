@@ -0,0 +1,66 @@
+package com.example.packetlogger.mask;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonMaskerTest {
+
+    private final JsonMasker jsonMasker = new JsonMasker(new JsonFactory(), List.of("password", "cardNo"));
+
+    @Test
+    void fieldNamesIgnoreAsciiCase() {
+        String masked = mask("{\"Password\":\"a\",\"PASSWORD\":1,\"cardno\":\"4111\",\"CardNo\":[\"1\",\"2\"],\"name\":\"kim\"}", false).getContent();
+
+        assertThat(masked).isEqualTo("{\"Password\":\"xxxx\",\"PASSWORD\":\"xxxx\",\"cardno\":\"xxxx\",\"CardNo\":[\"xxxx\",\"xxxx\"],\"name\":\"kim\"}");
+    }
+
+    @Test
+    void onlyWholeFieldNamesMatch() {
+        String content = "{\"password2\":\"a\",\"oldPassword\":\"b\"}";
+
+        assertThat(mask(content, false).getContent()).isEqualTo(content);
+    }
+
+    @Test
+    void fieldsBelowTheDepthAreKept() {
+        String masked = mask("{\"user\":{\"PassWord\":\"a\",\"inner\":{\"password\":\"b\"}}}", false).getContent();
+
+        assertThat(masked).isEqualTo("{\"user\":{\"PassWord\":\"xxxx\",\"inner\":{\"password\":\"b\"}}}");
+    }
+
+    @Test
+    void topLevelCodeAndMessageArePickedUp() {
+        MaskedContent masked = mask("{\"code\":\"E001\",\"message\":\"실패\",\"data\":{\"code\":\"inner\"}}", false);
+
+        assertThat(masked.getCode()).isEqualTo("E001");
+        assertThat(masked.getMessage()).isEqualTo("실패");
+    }
+
+    @Test
+    void truncatedDocumentKeepsWhatWasMasked() {
+        String masked = mask("{\"PASSWORD\":\"secret\",\"note\":\"abc", true).getContent();
+
+        assertThat(masked).startsWith("{\"PASSWORD\":\"xxxx\"").doesNotContain("secret");
+    }
+
+    @Test
+    void malformedDocumentIsNotMasked() {
+        assertThat(jsonMasker.mask(bytes("{\"password\":\"secret\",,}"))).isEmpty();
+        assertThat(jsonMasker.mask(bytes("password=secret"))).isEmpty();
+        assertThat(jsonMasker.mask(bytes("{\"password\":\"secret\""), 20, false)).isEmpty();
+    }
+
+    private MaskedContent mask(String content, boolean truncated) {
+        byte[] bytes = bytes(content);
+        return jsonMasker.mask(bytes, bytes.length, truncated, StandardCharsets.UTF_8).orElseThrow();
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.packetlogger.mask;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeywordMaskerTest {
+
+    private final KeywordMasker keywordMasker = new KeywordMasker(List.of("password", "cardNo"));
+
+    @Test
+    void formPairsIgnoreAsciiCase() {
+        assertThat(keywordMasker.mask("id=kim&Password=a%26b&CARDNO=4111&cardno=", BodyFormat.FORM))
+                .isEqualTo("id=kim&Password=xxxx&CARDNO=xxxx&cardno=");
+        assertThat(keywordMasker.mask("oldpassword=a&password2=b", BodyFormat.FORM)).isEqualTo("oldpassword=a&password2=b");
+    }
+
+    @Test
+    void xmlElementsAndAttributesIgnoreAsciiCase() {
+        assertThat(keywordMasker.mask("<req><ns:PassWord>a</ns:PassWord><card CardNo=\"4111\" type='v'/><note>password</note></req>", BodyFormat.XML))
+                .isEqualTo("<req><ns:PassWord>xxxx</ns:PassWord><card CardNo=\"xxxx\" type='v'/><note>password</note></req>");
+        assertThat(keywordMasker.mask("<PASSWORD><![CDATA[a<b]]></PASSWORD>", BodyFormat.XML)).isEqualTo("<PASSWORD>xxxx</PASSWORD>");
+    }
+
+    @Test
+    void textPairsAreMaskedWhereverTheyAppear() {
+        assertThat(keywordMasker.mask("login PASSWORD=hunter2 user=kim", BodyFormat.TEXT)).isEqualTo("login PASSWORD=xxxx user=kim");
+        assertThat(keywordMasker.mask("password: hunter2, cardNo :4111;", BodyFormat.TEXT)).isEqualTo("password: xxxx, cardNo :xxxx;");
+    }
+
+    @Test
+    void malformedJsonIsMaskedAsText() {
+        assertThat(keywordMasker.mask("{\"Password\": \"a b\", \"cardNo\":4111,, \"name\":\"kim\"}", BodyFormat.TEXT))
+                .isEqualTo("{\"Password\": \"xxxx\", \"cardNo\":xxxx,, \"name\":\"kim\"}");
+        assertThat(keywordMasker.mask("{\"password\":\"hunt", BodyFormat.TEXT)).isEqualTo("{\"password\":\"xxxx");
+    }
+
+    @Test
+    void textWithoutAMatchIsReturnedAsIs() {
+        String text = "no secrets here: password";
+
+        assertThat(keywordMasker.mask(text, BodyFormat.TEXT)).isSameAs(text);
+        assertThat(keywordMasker.mask(text, BodyFormat.JSON)).isSameAs(text);
+        assertThat(new KeywordMasker(null).mask("password=a", BodyFormat.TEXT)).isEqualTo("password=a");
+    }
+
+    @Test
+    void headersNamedLikeAKeywordAreMaskedWhole() {
+        Map<String, Object> headers = new HashMap<>();
+        headers.put("X-Password", "a");
+        headers.put("Password", "a");
+        headers.put("cookie", "sid=1; CardNo=4111");
+
+        assertThat(keywordMasker.maskHeaders(headers))
+                .containsEntry("X-Password", "a")
+                .containsEntry("Password", "xxxx")
+                .containsEntry("cookie", "sid=1; CardNo=xxxx");
+    }
+
+    @Test
+    void onlyTheQueryOfAUrlIsScanned() {
+        assertThat(keywordMasker.maskUrl("http://h/password=x?PASSWORD=y&a=b")).isEqualTo("http://h/password=x?PASSWORD=xxxx&a=b");
+        assertThat(keywordMasker.maskQuery("cardno=1")).isEqualTo("cardno=xxxx");
+    }
+}
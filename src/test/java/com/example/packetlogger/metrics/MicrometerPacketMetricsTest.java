@@ -0,0 +1,95 @@
+package com.example.packetlogger.metrics;
+
+import com.example.packetlogger.dedup.BodyCache;
+import com.example.packetlogger.filter.PacketDto;
+import com.example.packetlogger.sampling.PacketSampler;
+import com.example.packetlogger.sampling.RouteSampler;
+import com.example.packetlogger.sink.PacketSink;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MicrometerPacketMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RouteSampler orders = new RouteSampler("/orders/{id}", 0.0, 0, false, 0);
+    private final PacketSink packetSink = new PacketSink() {
+        @Override
+        public void write(byte[] record) {
+        }
+
+        @Override
+        public long getDroppedCount() {
+            return 7;
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return 3;
+        }
+    };
+    private final MicrometerPacketMetrics packetMetrics = new MicrometerPacketMetrics(registry, packetSink,
+            new PacketSampler(List.of(orders)), BodyCache.DISABLED);
+
+    @Test
+    void stagesAreTimedPerRoute() {
+        packetMetrics.recordStage(PacketMetrics.Stage.MASK, "/orders/{id}", TimeUnit.MILLISECONDS.toNanos(2));
+        packetMetrics.recordStage(PacketMetrics.Stage.MASK, "/orders/{id}", TimeUnit.MILLISECONDS.toNanos(4));
+        packetMetrics.recordStage(PacketMetrics.Stage.SINK, "/orders/{id}", TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertThat(registry.get("packet.logger.stage").tag("route", "/orders/{id}").tag("stage", "mask").timer().count()).isEqualTo(2);
+        assertThat(registry.get("packet.logger.stage").tag("stage", "mask").timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(6);
+        assertThat(registry.get("packet.logger.stage").tag("stage", "sink").timer().count()).isEqualTo(1);
+        assertThat(registry.get("packet.logger.stage").tag("stage", "build").timer().count()).isZero();
+    }
+
+    @Test
+    void capturedAndEmittedBytesAreSummarized() {
+        packetMetrics.recordCaptured("/orders/{id}", 100);
+        packetMetrics.recordCaptured("/orders/{id}", 300);
+        packetMetrics.recordEmitted("/orders/{id}", 900);
+
+        assertThat(registry.get("packet.logger.captured").tag("route", "/orders/{id}").summary().totalAmount()).isEqualTo(400);
+        assertThat(registry.get("packet.logger.captured").summary().count()).isEqualTo(2);
+        assertThat(registry.get("packet.logger.emitted").tag("route", "/orders/{id}").summary().totalAmount()).isEqualTo(900);
+        assertThat(registry.get("packet.logger.emitted").summary().getId().getBaseUnit()).isEqualTo("bytes");
+    }
+
+    @Test
+    void sinkDropsAndQueueDepthAreRead() {
+        assertThat(registry.get("packet.logger.sink.dropped").functionCounter().count()).isEqualTo(7);
+        assertThat(registry.get("packet.logger.sink.queue").gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    void rejectionsAreCounted() {
+        packetMetrics.recordRejected();
+        packetMetrics.recordRejected();
+
+        assertThat(registry.get("packet.logger.dispatcher.rejected").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void samplingDecisionsAreCountedPerRoute() {
+        orders.sample();
+        orders.sample();
+
+        assertThat(registry.get("packet.logger.sampling").tag("route", "/orders/{id}").tag("result", "kept").functionCounter().count()).isZero();
+        assertThat(registry.get("packet.logger.sampling").tag("route", "/orders/{id}").tag("result", "dropped").functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void unmatchedPathsShareOneRouteTag() {
+        packetMetrics.recordEmitted(PacketMetrics.route(new PacketDto.PatternMap("/raw/1", null)), 10);
+        packetMetrics.recordEmitted(PacketMetrics.route(new PacketDto.PatternMap("/raw/2", null)), 20);
+        packetMetrics.recordEmitted(PacketMetrics.route(new PacketDto.PatternMap("/orders/{id}", "id=1")), 30);
+
+        assertThat(registry.get("packet.logger.emitted").tag("route", PacketMetrics.UNMATCHED).summary().totalAmount()).isEqualTo(30);
+        assertThat(registry.get("packet.logger.emitted").tag("route", "/orders/{id}").summary().totalAmount()).isEqualTo(30);
+        assertThat(registry.find("packet.logger.emitted").summaries()).hasSize(2);
+    }
+}
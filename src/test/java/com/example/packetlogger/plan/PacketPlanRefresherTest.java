@@ -0,0 +1,70 @@
+package com.example.packetlogger.plan;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PacketPlanRefresherTest {
+
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("packet-logger.enabled", "true")
+            .withProperty("packet-logger.drop-event[0]", "/health");
+    private final PacketPlanHolder packetPlans = PacketPlanHolder.of(
+            new BaseProperties.PacketLogger(true, false, null, null, null, null, null, Collections.singletonList("/health"),
+                    null, null, null, null, null, null, null, null, null, null),
+            new JsonFactory());
+    private final PacketPlanRefresher refresher = new PacketPlanRefresher(environment, packetPlans);
+
+    @Test
+    void changedPacketLoggerKeysRecompileThePlan() {
+        PacketPlan before = packetPlans.get();
+        environment.setProperty("packet-logger.drop-event[0]", "/actuator/**");
+        environment.setProperty("packet-logger.send-headers[0]", "X-Request-Id");
+
+        refresher.onApplicationEvent(new EnvironmentChangeEvent(Set.of("packet-logger.drop-event[0]", "packet-logger.send-headers[0]")));
+
+        PacketPlan after = packetPlans.get();
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.isDropEvent("/actuator/health/liveness")).isTrue();
+        assertThat(after.isDropEvent("/health")).isFalse();
+        assertThat(after.getSendHeaders()).containsExactly("x-request-id");
+        assertThat(before.isDropEvent("/health")).isTrue();
+    }
+
+    @Test
+    void keysInAnyRelaxedFormAreRecognised() {
+        environment.setProperty("packet-logger.drop-event[0]", "/ping");
+
+        refresher.onApplicationEvent(new EnvironmentChangeEvent(Set.of("PACKET_LOGGER_DROP_EVENT_0")));
+
+        assertThat(packetPlans.get().isDropEvent("/ping")).isTrue();
+    }
+
+    @Test
+    void unrelatedKeysKeepThePlan() {
+        PacketPlan before = packetPlans.get();
+        environment.setProperty("packet-logger.drop-event[0]", "/ping");
+
+        refresher.onApplicationEvent(new EnvironmentChangeEvent(Set.of("spring.application.name", "logging.level.root")));
+
+        assertThat(packetPlans.get()).isSameAs(before);
+    }
+
+    @Test
+    void configurationThatFailsToBindKeepsThePlan() {
+        PacketPlan before = packetPlans.get();
+        environment.setProperty("packet-logger.sink.queue-capacity", "many");
+
+        refresher.onApplicationEvent(new EnvironmentChangeEvent(Set.of("packet-logger.sink.queue-capacity")));
+
+        assertThat(packetPlans.get()).isSameAs(before);
+        assertThat(packetPlans.get().isDropEvent("/health")).isTrue();
+    }
+}
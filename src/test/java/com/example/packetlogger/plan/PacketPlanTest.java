@@ -0,0 +1,78 @@
+package com.example.packetlogger.plan;
+
+import com.example.packetlogger.config.BaseProperties;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PacketPlanTest {
+
+    @Test
+    void exactPathsAreDropped() {
+        PacketPlan plan = plan(List.of("/health", "/actuator/info"));
+
+        assertThat(plan.isDropEvent("/health")).isTrue();
+        assertThat(plan.isDropEvent("/actuator/info")).isTrue();
+        assertThat(plan.isDropEvent("/health/live")).isFalse();
+        assertThat(plan.isDropEvent(null)).isFalse();
+    }
+
+    @Test
+    void singleStarStaysWithinOneSegment() {
+        PacketPlan plan = plan(List.of("/actuator/*"));
+
+        assertThat(plan.isDropEvent("/actuator/health")).isTrue();
+        assertThat(plan.isDropEvent("/actuator/")).isTrue();
+        assertThat(plan.isDropEvent("/actuator/health/liveness")).isFalse();
+        assertThat(plan.isDropEvent("/actuator")).isFalse();
+    }
+
+    @Test
+    void doubleStarCrossesSegments() {
+        PacketPlan plan = plan(List.of("/static/**"));
+
+        assertThat(plan.isDropEvent("/static/app.js")).isTrue();
+        assertThat(plan.isDropEvent("/static/img/logo/large.png")).isTrue();
+        assertThat(plan.isDropEvent("/statics/app.js")).isFalse();
+    }
+
+    @Test
+    void questionMarkMatchesOneCharacterOfASegment() {
+        PacketPlan plan = plan(List.of("/v?/ping"));
+
+        assertThat(plan.isDropEvent("/v1/ping")).isTrue();
+        assertThat(plan.isDropEvent("/v2/ping")).isTrue();
+        assertThat(plan.isDropEvent("/v10/ping")).isFalse();
+        assertThat(plan.isDropEvent("/v//ping")).isFalse();
+    }
+
+    @Test
+    void literalPartsOfAGlobAreNotRegex() {
+        PacketPlan plan = plan(List.of("/files/*.json", "/a+b/**"));
+
+        assertThat(plan.isDropEvent("/files/data.json")).isTrue();
+        assertThat(plan.isDropEvent("/files/dataxjson")).isFalse();
+        assertThat(plan.isDropEvent("/a+b/c")).isTrue();
+        assertThat(plan.isDropEvent("/aab/c")).isFalse();
+    }
+
+    @Test
+    void headerNamesAreTrimmedLowerCasedAndDistinct() {
+        BaseProperties.PacketLogger options = new BaseProperties.PacketLogger(true, false, null, null,
+                List.of("X-Request-Id", " x-request-id ", "Authorization"), null, null, null, null,
+                null, null, null, null, null, null, null, null, null);
+        PacketPlan plan = PacketPlan.compile(options, new JsonFactory(), new JsonFactory());
+
+        assertThat(plan.getSendHeaders()).containsExactly("x-request-id", "authorization");
+        assertThat(plan.getReceiveHeaders()).isEmpty();
+    }
+
+    private static PacketPlan plan(List<String> dropEvent) {
+        BaseProperties.PacketLogger options = new BaseProperties.PacketLogger(true, false, null, null, null, null, null,
+                dropEvent, null, null, null, null, null, null, null, null, null, null);
+        return PacketPlan.compile(options, new JsonFactory(), new JsonFactory());
+    }
+}
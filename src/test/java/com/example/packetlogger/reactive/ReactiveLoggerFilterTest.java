@@ -0,0 +1,467 @@
+package com.example.packetlogger.reactive;
+
+import com.example.packetlogger.aggregate.PacketAggregator;
+import com.example.packetlogger.config.BaseProperties;
+import com.example.packetlogger.dedup.BodyCache;
+import com.example.packetlogger.filter.LoggerFilter;
+import com.example.packetlogger.filter.PacketAssembler;
+import com.example.packetlogger.metrics.PacketMetrics;
+import com.example.packetlogger.plan.PacketPlanHolder;
+import com.example.packetlogger.sampling.PacketSampler;
+import com.example.packetlogger.sink.PacketSink;
+import com.example.packetlogger.worker.PacketDispatcher;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveLoggerFilterTest {
+
+    private static final String REQUEST_BODY = "{\"item\":\"주문\",\"count\":2}";
+    private static final String RESPONSE_BODY = "{\"code\":\"0000\",\"message\":\"ok\"}";
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final List<String> records = new CopyOnWriteArrayList<>();
+    private final PacketSink packetSink = record -> records.add(new String(record, StandardCharsets.UTF_8));
+    private final BaseProperties.PacketLogger options = new BaseProperties.PacketLogger(true, false, "orders", Collections.emptyList(),
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), null,
+            null, null, null, null, null, null, null, null, null);
+    private final PacketPlanHolder packetPlans = PacketPlanHolder.of(options, objectMapper.getFactory());
+    private final PacketAggregator packetAggregator = new PacketAggregator(List.of("/aggregated/stream", "/aggregated/head"),
+            Duration.ofHours(1), null, packetSink);
+    private final ReactiveLoggerFilter reactiveLoggerFilter = reactiveLoggerFilter(packetPlans, Schedulers.immediate());
+    private final List<CountingDataBuffer> buffers = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        packetAggregator.close();
+    }
+
+    @Test
+    void aggregatedRouteCountsStreamedBytesWithoutContentLength() {
+        serve("/aggregated/stream", exchange -> exchange.getResponse().writeWith(Flux.range(0, 3).map(i -> buffer(1000))));
+
+        assertThat(records).isEmpty();
+        assertThat(packetAggregator.route("/aggregated/stream").drain().getResponseBytes()).isEqualTo(3000);
+    }
+
+    @Test
+    void aggregatedResponseWithoutBodyFallsBackToContentLength() {
+        serve("/aggregated/head", exchange -> {
+            exchange.getResponse().getHeaders().setContentLength(1234);
+            return exchange.getResponse().setComplete();
+        });
+
+        assertThat(packetAggregator.route("/aggregated/head").drain().getResponseBytes()).isEqualTo(1234);
+    }
+
+    @Test
+    void recordHasTheSchemaOfTheServletRecord() throws Exception {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/orders");
+        servletRequest.setServletPath("/orders");
+        servletRequest.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        servletRequest.setContent(REQUEST_BODY.getBytes(StandardCharsets.UTF_8));
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                StreamUtils.copyToByteArray(request.getInputStream());
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.getOutputStream().write(RESPONSE_BODY.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        PacketDispatcher packetDispatcher = new PacketDispatcher(Runnable::run,
+                new PacketAssembler(packetPlans, packetSink, PacketMetrics.NOOP, BodyCache.DISABLED), PacketMetrics.NOOP);
+        new LoggerFilter(packetPlans, new PacketSampler(Collections.emptyList()), PacketMetrics.NOOP, packetDispatcher, packetAggregator)
+                .doFilter(servletRequest, new MockHttpServletResponse(), new MockFilterChain(servlet));
+        assertThat(records).hasSize(1);
+        JsonNode servletRecord = objectMapper.readTree(records.remove(0));
+
+        JsonNode reactiveRecord = objectMapper.readTree(post(reactiveLoggerFilter));
+
+        assertThat(fields(reactiveRecord)).isEqualTo(fields(servletRecord));
+        assertThat(reactiveRecord.at("/http/request/body/content").asText()).isEqualTo(REQUEST_BODY);
+        assertThat(reactiveRecord.at("/http/response/body/content").asText()).isEqualTo(RESPONSE_BODY);
+        assertBuffersReleased();
+    }
+
+    @Test
+    void captureStopsAtTheLimit() throws Exception {
+        BaseProperties.Capture capture = new BaseProperties.Capture(DataSize.ofBytes(10), DataSize.ofBytes(4), null, null, null);
+        ReactiveLoggerFilter filter = reactiveLoggerFilter(plans(capture), Schedulers.immediate());
+
+        JsonNode record = objectMapper.readTree(post(filter));
+
+        assertThat(REQUEST_BODY).startsWith(record.at("/http/request/body/content").asText());
+        assertThat(record.at("/http/request/body/content").asText().getBytes(StandardCharsets.UTF_8)).hasSizeLessThanOrEqualTo(10);
+        assertThat(record.at("/http/request/body/bytes").asInt()).isEqualTo(REQUEST_BODY.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(record.at("/http/request/body/truncated").asBoolean()).isTrue();
+        assertThat(RESPONSE_BODY).startsWith(record.at("/http/response/body/content").asText());
+        assertThat(record.at("/http/response/body/content").asText()).hasSizeLessThanOrEqualTo(4);
+        assertThat(record.at("/http/response/body/bytes").asInt()).isEqualTo(RESPONSE_BODY.length());
+        assertThat(record.at("/http/response/body/truncated").asBoolean()).isTrue();
+        assertBuffersReleased();
+    }
+
+    @Test
+    void captureKeepsSlicesOnlyUpToTheLimit() {
+        DataBufferCapture capture = new DataBufferCapture(10, true);
+        List<CountingDataBuffer> written = List.of(buffer("01234567"), buffer("89abcdef"), buffer("ghijklmn"));
+        written.forEach(capture::capture);
+
+        assertThat(capture.getCount()).isEqualTo(10);
+        assertThat(capture.getTotal()).isEqualTo(24);
+        assertThat(capture.isTruncated()).isTrue();
+        assertThat(new String(capture.toByteArray(), StandardCharsets.US_ASCII)).isEqualTo("0123456789");
+        assertThat(written).extracting(CountingDataBuffer::refCount).containsExactly(2, 2, 1);
+
+        capture.release();
+        capture.capture(buffer("opqrstuv"));
+
+        assertBuffersReleased();
+    }
+
+    @Test
+    void slicesAreReleasedWhenTheTailDropsTheBodies() throws Exception {
+        BaseProperties.Capture capture = new BaseProperties.Capture(null, null, null, new BaseProperties.Tail(true, null, null), null);
+        ReactiveLoggerFilter filter = reactiveLoggerFilter(plans(capture), Schedulers.immediate());
+
+        JsonNode record = objectMapper.readTree(post(filter));
+
+        assertThat(record.at("/http/request/body/content").asText()).isEmpty();
+        assertThat(record.at("/http/request/body/bytes").asInt()).isEqualTo(REQUEST_BODY.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(record.at("/http/response/body/content").asText()).isEmpty();
+        assertThat(record.at("/http/response/body/bytes").asInt()).isEqualTo(RESPONSE_BODY.length());
+        assertBuffersReleased();
+    }
+
+    @Test
+    void slicesAreReleasedWhenTheSchedulerRejects() {
+        AtomicInteger rejected = new AtomicInteger();
+        Scheduler full = new Scheduler() {
+            @Override
+            public Disposable schedule(Runnable task) {
+                throw new RejectedExecutionException("queue full");
+            }
+
+            @Override
+            public Worker createWorker() {
+                return Schedulers.immediate().createWorker();
+            }
+        };
+        PacketMetrics packetMetrics = new PacketMetrics() {
+            @Override
+            public void recordRejected() {
+                rejected.incrementAndGet();
+            }
+        };
+        ReactiveLoggerFilter filter = new ReactiveLoggerFilter(packetPlans, new PacketSampler(Collections.emptyList()),
+                new PacketAssembler(packetPlans, packetSink, packetMetrics, BodyCache.DISABLED), packetAggregator, packetMetrics, full);
+
+        assertThat(post(filter)).isNull();
+        assertThat(rejected).hasValue(1);
+        assertBuffersReleased();
+    }
+
+    private void serve(String path, WebFilterChain chain) {
+        reactiveLoggerFilter.filter(MockServerWebExchange.from(MockServerHttpRequest.get(path)), chain).block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * Posts a JSON body that arrives in two buffers and answers with one that is written in two, reading the request
+     * body as a handler would. Returns the record, if one was emitted.
+     */
+    private String post(ReactiveLoggerFilter filter) {
+        byte[] request = REQUEST_BODY.getBytes(StandardCharsets.UTF_8);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Flux.just(buffer(request, 0, 12), buffer(request, 12, request.length - 12))));
+        byte[] response = RESPONSE_BODY.getBytes(StandardCharsets.UTF_8);
+        filter.filter(exchange, served -> served.getRequest().getBody().then(Mono.defer(() -> {
+            served.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return served.getResponse().writeWith(Flux.just(buffer(response, 0, 5), buffer(response, 5, response.length - 5)));
+        }))).block(Duration.ofSeconds(5));
+        assertThat(records).hasSizeLessThanOrEqualTo(1);
+        return records.isEmpty() ? null : records.get(0);
+    }
+
+    private ReactiveLoggerFilter reactiveLoggerFilter(PacketPlanHolder packetPlans, Scheduler scheduler) {
+        return new ReactiveLoggerFilter(packetPlans, new PacketSampler(Collections.emptyList()),
+                new PacketAssembler(packetPlans, packetSink, PacketMetrics.NOOP, BodyCache.DISABLED), packetAggregator, PacketMetrics.NOOP,
+                scheduler);
+    }
+
+    private PacketPlanHolder plans(BaseProperties.Capture capture) {
+        return PacketPlanHolder.of(new BaseProperties.PacketLogger(true, false, "orders", Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), null,
+                null, null, capture, null, null, null, null, null, null), objectMapper.getFactory());
+    }
+
+    /**
+     * Every buffer is still held once by whoever wrote it, so any count above one is a slice the capture leaked.
+     */
+    private void assertBuffersReleased() {
+        assertThat(buffers).isNotEmpty().allSatisfy(buffer -> assertThat(buffer.refCount()).isEqualTo(1));
+    }
+
+    private static Set<String> fields(JsonNode node) {
+        Set<String> fields = new TreeSet<>();
+        collect(node, "", fields);
+        return fields;
+    }
+
+    private static void collect(JsonNode node, String path, Set<String> fields) {
+        Iterator<Map.Entry<String, JsonNode>> children = node.fields();
+        while (children.hasNext()) {
+            Map.Entry<String, JsonNode> child = children.next();
+            String childPath = path + "/" + child.getKey();
+            fields.add(childPath);
+            collect(child.getValue(), childPath, fields);
+        }
+    }
+
+    private CountingDataBuffer buffer(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return buffer(bytes, 0, bytes.length);
+    }
+
+    private CountingDataBuffer buffer(byte[] bytes, int offset, int length) {
+        byte[] copy = new byte[length];
+        System.arraycopy(bytes, offset, copy, 0, length);
+        CountingDataBuffer buffer = new CountingDataBuffer(DefaultDataBufferFactory.sharedInstance.wrap(copy), new AtomicInteger(1));
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    private static DataBuffer buffer(int size) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(new byte[size]);
+    }
+    /**
+     * Reference counted view of a heap buffer; slices share the count of their parent as Netty's do.
+     */
+    private static class CountingDataBuffer implements PooledDataBuffer {
+
+        private final DataBuffer delegate;
+        private final AtomicInteger refCount;
+
+        CountingDataBuffer(DataBuffer delegate, AtomicInteger refCount) {
+            this.delegate = delegate;
+            this.refCount = refCount;
+        }
+
+        int refCount() {
+            return refCount.get();
+        }
+
+        @Override
+        public boolean isAllocated() {
+            return refCount.get() > 0;
+        }
+
+        @Override
+        public PooledDataBuffer retain() {
+            refCount.incrementAndGet();
+            return this;
+        }
+
+        @Override
+        public PooledDataBuffer touch(Object hint) {
+            return this;
+        }
+
+        @Override
+        public boolean release() {
+            if (refCount.get() <= 0) {
+                throw new IllegalStateException("released more often than retained");
+            }
+            return refCount.decrementAndGet() == 0;
+        }
+
+        @Override
+        public DataBuffer slice(int index, int length) {
+            return new CountingDataBuffer(delegate.slice(index, length), refCount);
+        }
+
+        @Override
+        public DataBufferFactory factory() {
+            return delegate.factory();
+        }
+
+        @Override
+        public int indexOf(IntPredicate predicate, int fromIndex) {
+            return delegate.indexOf(predicate, fromIndex);
+        }
+
+        @Override
+        public int lastIndexOf(IntPredicate predicate, int fromIndex) {
+            return delegate.lastIndexOf(predicate, fromIndex);
+        }
+
+        @Override
+        public int readableByteCount() {
+            return delegate.readableByteCount();
+        }
+
+        @Override
+        public int writableByteCount() {
+            return delegate.writableByteCount();
+        }
+
+        @Override
+        public int capacity() {
+            return delegate.capacity();
+        }
+
+        @Override
+        public DataBuffer capacity(int capacity) {
+            delegate.capacity(capacity);
+            return this;
+        }
+
+        @Override
+        public int readPosition() {
+            return delegate.readPosition();
+        }
+
+        @Override
+        public DataBuffer readPosition(int readPosition) {
+            delegate.readPosition(readPosition);
+            return this;
+        }
+
+        @Override
+        public int writePosition() {
+            return delegate.writePosition();
+        }
+
+        @Override
+        public DataBuffer writePosition(int writePosition) {
+            delegate.writePosition(writePosition);
+            return this;
+        }
+
+        @Override
+        public byte getByte(int index) {
+            return delegate.getByte(index);
+        }
+
+        @Override
+        public byte read() {
+            return delegate.read();
+        }
+
+        @Override
+        public DataBuffer read(byte[] destination) {
+            delegate.read(destination);
+            return this;
+        }
+
+        @Override
+        public DataBuffer read(byte[] destination, int offset, int length) {
+            delegate.read(destination, offset, length);
+            return this;
+        }
+
+        @Override
+        public DataBuffer write(byte b) {
+            delegate.write(b);
+            return this;
+        }
+
+        @Override
+        public DataBuffer write(byte[] source) {
+            delegate.write(source);
+            return this;
+        }
+
+        @Override
+        public DataBuffer write(byte[] source, int offset, int length) {
+            delegate.write(source, offset, length);
+            return this;
+        }
+
+        @Override
+        public DataBuffer write(DataBuffer... buffers) {
+            delegate.write(buffers);
+            return this;
+        }
+
+        @Override
+        public DataBuffer write(ByteBuffer... buffers) {
+            delegate.write(buffers);
+            return this;
+        }
+
+        @Override
+        public ByteBuffer asByteBuffer() {
+            return delegate.asByteBuffer();
+        }
+
+        @Override
+        public ByteBuffer asByteBuffer(int index, int length) {
+            return delegate.asByteBuffer(index, length);
+        }
+
+        @Override
+        public InputStream asInputStream() {
+            return delegate.asInputStream();
+        }
+
+        @Override
+        public InputStream asInputStream(boolean releaseOnClose) {
+            return delegate.asInputStream(releaseOnClose);
+        }
+
+        @Override
+        public OutputStream asOutputStream() {
+            return delegate.asOutputStream();
+        }
+
+        @Override
+        public String toString(int index, int length, Charset charset) {
+            return delegate.toString(index, length, charset);
+        }
+    }
+}
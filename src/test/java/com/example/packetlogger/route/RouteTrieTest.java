@@ -0,0 +1,58 @@
+package com.example.packetlogger.route;
+
+import com.example.packetlogger.filter.PacketDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RouteTrieTest {
+
+    private final RouteTrie trie = new RouteTrie(List.of("/users/:id", "/users/me", "/orders/:orderId/items/:itemId"), 16);
+
+    @Test
+    void literalSegmentWinsOverParam() {
+        PacketDto.PatternMap me = trie.match("/users/me");
+        PacketDto.PatternMap user = trie.match("/users/42");
+
+        assertThat(me.getPattern()).isEqualTo("/users/me");
+        assertThat(me.getParam()).isEmpty();
+        assertThat(user.getPattern()).isEqualTo("/users/:id");
+        assertThat(user.getParam()).isEqualTo("id=42");
+    }
+
+    @Test
+    void collectsEveryParam() {
+        PacketDto.PatternMap item = trie.match("/orders/7/items/9/");
+
+        assertThat(item.getPattern()).isEqualTo("/orders/:orderId/items/:itemId");
+        assertThat(item.getParam()).isEqualTo("orderId=7&itemId=9");
+    }
+
+    @Test
+    void missKeepsThePathAndIsCached() {
+        PacketDto.PatternMap miss = trie.match("/health");
+
+        assertThat(miss.getPattern()).isEqualTo("/health");
+        assertThat(miss.getParam()).isNull();
+        assertThat(trie.match("/health")).isSameAs(miss);
+        assertThat(trie.match(null)).isSameAs(trie.match(null));
+    }
+
+    @Test
+    void matchIsCached() {
+        assertThat(trie.match("/users/42")).isSameAs(trie.match("/users/42"));
+    }
+
+    @Test
+    void cachedMatchCannotBeChanged() {
+        PacketDto.PatternMap match = trie.match("/users/42");
+
+        assertThatThrownBy(() -> match.setParam("userId=43")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> match.setPattern("/other")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> trie.match(null).setPattern("/other")).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(trie.match("/users/42").getParam()).isEqualTo(match.getParam());
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.packetlogger.sampling;
+
+import com.example.packetlogger.config.BaseProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PacketSamplerTest {
+
+    @Test
+    void routesWithoutARuleHaveNoSampler() {
+        PacketSampler sampler = PacketSampler.of(options(null));
+
+        assertThat(sampler.getRoutes()).isEmpty();
+        assertThat(sampler.route("/api/orders")).isNull();
+        assertThat(sampler.route(null)).isNull();
+    }
+
+    @Test
+    void rulesAreCompiledPerPattern() {
+        PacketSampler sampler = PacketSampler.of(options(new BaseProperties.Sampling(List.of(
+                new BaseProperties.SamplingRule("/api/orders", 0.0, null, true, null),
+                new BaseProperties.SamplingRule("/api/health", null, 2, false, Duration.ofMillis(500)),
+                new BaseProperties.SamplingRule("/api/orders", 1.0, null, false, null)))));
+
+        assertThat(sampler.getRoutes()).containsOnlyKeys("/api/orders", "/api/health");
+
+        RouteSampler orders = sampler.route("/api/orders");
+        assertThat(orders.isRescuable()).isTrue();
+        assertThat(orders.sample()).isFalse();
+
+        RouteSampler health = sampler.route("/api/health");
+        assertThat(health.sample()).isTrue();
+        assertThat(health.sample()).isTrue();
+        assertThat(health.sample()).isFalse();
+        assertThat(health.keep(200, Duration.ofMillis(500).toNanos())).isTrue();
+    }
+
+    private static BaseProperties.PacketLogger options(BaseProperties.Sampling sampling) {
+        return new BaseProperties.PacketLogger(true, false, null, null, null, null, null, null, null, null, null,
+                null, sampling, null, null, null, null, null);
+    }
+}
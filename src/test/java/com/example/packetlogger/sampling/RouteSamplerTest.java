@@ -0,0 +1,118 @@
+package com.example.packetlogger.sampling;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteSamplerTest {
+
+    private static final long SLOW = Duration.ofMillis(500).toNanos();
+
+    @Test
+    void ratioOneKeepsEveryRequest() {
+        RouteSampler sampler = new RouteSampler("/a", 1.0, 0, false, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(sampler.sample()).isTrue();
+        }
+
+        assertThat(sampler.getKeptCount()).isEqualTo(1000);
+        assertThat(sampler.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void ratioZeroDropsEveryRequest() {
+        RouteSampler sampler = new RouteSampler("/a", 0.0, 0, false, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(sampler.sample()).isFalse();
+        }
+
+        assertThat(sampler.getKeptCount()).isZero();
+        assertThat(sampler.getDroppedCount()).isEqualTo(1000);
+    }
+
+    @Test
+    void fractionalRatioKeepsThatShare() {
+        RouteSampler sampler = new RouteSampler("/a", 0.25, 0, false, 0);
+        int sampled = 0;
+        for (int i = 0; i < 20_000; i++) {
+            if (sampler.sample()) {
+                sampled++;
+            }
+        }
+
+        assertThat(sampled).isBetween(4_000, 6_000);
+        assertThat(sampler.getKeptCount()).isEqualTo(sampled);
+        assertThat(sampler.getDroppedCount()).isEqualTo(20_000 - sampled);
+    }
+
+    @Test
+    void capAdmitsABurstOfMaxPerSecondThenRejects() {
+        RouteSampler sampler = new RouteSampler("/a", 1.0, 5, false, 0);
+        boolean[] sampled = new boolean[6];
+        for (int i = 0; i < sampled.length; i++) {
+            sampled[i] = sampler.sample();
+        }
+
+        assertThat(sampled).containsExactly(true, true, true, true, true, false);
+        assertThat(sampler.getKeptCount()).isEqualTo(5);
+        assertThat(sampler.getDroppedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void capRefillsOneIntervalAtATime() throws InterruptedException {
+        RouteSampler sampler = new RouteSampler("/a", 1.0, 5, false, 0);
+        while (sampler.sample()) {
+        }
+
+        Thread.sleep(Duration.ofSeconds(1).dividedBy(5).toMillis() + 50);
+
+        assertThat(sampler.sample()).isTrue();
+        assertThat(sampler.sample()).isFalse();
+    }
+
+    @Test
+    void nonSuccessStatusIsRescued() {
+        RouteSampler sampler = new RouteSampler("/a", 0.0, 0, true, 0);
+
+        assertThat(sampler.isRescuable()).isTrue();
+        assertThat(sampler.sample()).isFalse();
+        assertThat(sampler.keep(500, 0)).isTrue();
+        assertThat(sampler.keep(404, 0)).isTrue();
+        assertThat(sampler.keep(101, 0)).isTrue();
+        assertThat(sampler.keep(200, Long.MAX_VALUE)).isFalse();
+    }
+
+    @Test
+    void slowRequestIsRescued() {
+        RouteSampler sampler = new RouteSampler("/a", 0.0, 0, false, SLOW);
+
+        assertThat(sampler.isRescuable()).isTrue();
+        assertThat(sampler.keep(200, SLOW - 1)).isFalse();
+        assertThat(sampler.keep(200, SLOW)).isTrue();
+        assertThat(sampler.keep(500, 0)).isFalse();
+    }
+
+    @Test
+    void rescuableDropIsCountedOnceByKeep() {
+        RouteSampler sampler = new RouteSampler("/a", 0.0, 0, true, SLOW);
+
+        assertThat(sampler.sample()).isFalse();
+        assertThat(sampler.getDroppedCount()).isZero();
+
+        sampler.keep(200, 0);
+        assertThat(sampler.getDroppedCount()).isEqualTo(1);
+        assertThat(sampler.getKeptCount()).isZero();
+
+        assertThat(sampler.sample()).isFalse();
+        sampler.keep(503, 0);
+        assertThat(sampler.getDroppedCount()).isEqualTo(1);
+        assertThat(sampler.getKeptCount()).isEqualTo(1);
+    }
+
+    @Test
+    void withoutRescueNothingIsRescuable() {
+        assertThat(new RouteSampler("/a", 0.5, 0, false, 0).isRescuable()).isFalse();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.packetlogger.sink;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncPacketSinkTest {
+
+    @Test
+    void idleWriterIsWokenByTheNextRecord() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (AsyncPacketSink sink = new AsyncPacketSink(out, 16, 1, Duration.ofMinutes(1), OverflowPolicy.DROP_NEWEST)) {
+            Thread.sleep(50);
+            sink.write("a".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(await(() -> out.size() > 0)).isTrue();
+            assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("a\n");
+        }
+    }
+
+    @Test
+    void partialBatchIsFlushedAtTheDeadline() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (AsyncPacketSink sink = new AsyncPacketSink(out, 16, 100, Duration.ofMillis(100), OverflowPolicy.DROP_NEWEST)) {
+            sink.write("a".getBytes(StandardCharsets.UTF_8));
+            sink.write("b".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(out.size()).isZero();
+            assertThat(await(() -> out.size() > 0)).isTrue();
+            assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("a\nb\n");
+        }
+    }
+
+    @Test
+    void closeDrainsQueuedRecords() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncPacketSink sink = new AsyncPacketSink(out, 16, 100, Duration.ofMinutes(1), OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 10; i++) {
+            sink.write(String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+        }
+        sink.close();
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("0\n1\n2\n3\n4\n5\n6\n7\n8\n9\n");
+        assertThat(sink.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void recordWriterIsClosedByTheWriterThread() {
+        AtomicReference<String> closedBy = new AtomicReference<>();
+        RecordWriter recordWriter = new RecordWriter() {
+            @Override
+            public void append(byte[] record) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+                closedBy.set(Thread.currentThread().getName());
+            }
+        };
+        new AsyncPacketSink(recordWriter, 16, 100, Duration.ofMinutes(1), OverflowPolicy.DROP_NEWEST).close();
+
+        assertThat(closedBy).hasValue(AsyncPacketSink.THREAD_NAME);
+    }
+
+    static boolean await(Condition condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (condition.met()) {
+                return true;
+            }
+            Thread.sleep(5);
+        }
+        return condition.met();
+    }
+
+    interface Condition {
+        boolean met();
+    }
+}
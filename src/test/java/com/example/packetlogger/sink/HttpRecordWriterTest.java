@@ -0,0 +1,222 @@
+package com.example.packetlogger.sink;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpRecordWriterTest {
+
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final List<String> contentTypes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicLong delayMillis = new AtomicLong();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private HttpServer server;
+
+    @TempDir
+    Path spillDirectory;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/ingest", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void batchesArePostedAsGzippedNdjson() throws IOException {
+        HttpRecordWriter writer = writer(Duration.ofSeconds(5), 1 << 20);
+        writer.append(bytes("{\"n\":1}"));
+        writer.append(bytes("{\"n\":2}"));
+        writer.flush();
+
+        assertThat(received).containsExactly("{\"n\":1}\n{\"n\":2}\n");
+        assertThat(contentTypes).containsExactly(HttpRecordWriter.CONTENT_TYPE + ";" + HttpRecordWriter.CONTENT_ENCODING);
+        assertThat(writer.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void spilledBatchesAreRedeliveredInOrder() throws Exception {
+        HttpRecordWriter writer = writer(Duration.ofSeconds(5), 1 << 20);
+        status.set(503);
+        writer.append(bytes("a"));
+        writer.flush();
+        writer.append(bytes("b"));
+        writer.flush();
+        assertThat(received).isEmpty();
+        assertThat(spilled()).isEqualTo(2);
+
+        status.set(200);
+        Thread.sleep(20);
+        writer.append(bytes("c"));
+        writer.flush();
+
+        assertThat(received).containsExactly("a\n", "b\n", "c\n");
+        assertThat(spilled()).isZero();
+        assertThat(writer.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void oldestBatchesAreDroppedAtTheSpillLimit() throws IOException {
+        HttpRecordWriter writer = writer(Duration.ofSeconds(5), 1);
+        status.set(503);
+        for (int i = 0; i < 3; i++) {
+            writer.append(bytes("x"));
+            writer.append(bytes("y"));
+            writer.flush();
+        }
+
+        assertThat(spilled()).isEqualTo(1);
+        assertThat(writer.getDroppedCount()).isEqualTo(4);
+    }
+
+    @Test
+    void unreadableSpillFileIsDroppedOnce() throws Exception {
+        HttpRecordWriter writer = writer(Duration.ofSeconds(5), 1 << 20);
+        status.set(503);
+        writer.append(bytes("lost"));
+        writer.flush();
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+
+        status.set(200);
+        Thread.sleep(20);
+        writer.append(bytes("next"));
+        writer.flush();
+        writer.append(bytes("last"));
+        writer.flush();
+
+        assertThat(received).containsExactly("next\n", "last\n");
+        assertThat(writer.getDroppedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void strayFilesInTheSpillDirectoryAreIgnored() throws Exception {
+        for (String stray : List.of("spill-old.ndjson.gz", "spill-1-x.ndjson.gz", "spill--3.ndjson.gz", "spill-1-2-3.ndjson.gz",
+                "spill-" + "9".repeat(21) + "-1.ndjson.gz", "spill-1-99999999999.ndjson.gz")) {
+            Files.write(spillDirectory.resolve(stray), new byte[]{1});
+        }
+        Files.write(spillDirectory.resolve("spill-00000000000000000041-1.ndjson.gz"), gzip("kept\n"));
+
+        HttpRecordWriter writer = writer(Duration.ofSeconds(5), 1 << 20);
+        Thread.sleep(20);
+        writer.append(bytes("next"));
+        writer.flush();
+
+        assertThat(received).containsExactly("kept\n", "next\n");
+        assertThat(writer.getDroppedCount()).isZero();
+        assertThat(spilled()).isEqualTo(6);
+    }
+
+    @Test
+    void batchNamesAreParsedStrictly() {
+        assertThat(SpillQueue.sequence(Path.of("spill-00000000000000000007-12.ndjson.gz"))).isEqualTo(7);
+        assertThat(SpillQueue.records(Path.of("spill-00000000000000000007-12.ndjson.gz"))).isEqualTo(12);
+        assertThat(SpillQueue.sequence(Path.of("spill-old.ndjson.gz"))).isEqualTo(-1);
+        assertThat(SpillQueue.records(Path.of("spill-old.ndjson.gz"))).isEqualTo(-1);
+        assertThat(SpillQueue.sequence(Path.of("spill-+1-2.ndjson.gz"))).isEqualTo(-1);
+        assertThat(SpillQueue.records(Path.of("spill-1-.ndjson.gz"))).isEqualTo(-1);
+        assertThat(SpillQueue.records(Path.of("spill-1-2147483648.ndjson.gz"))).isEqualTo(-1);
+    }
+
+    @Test
+    void slowCollectorHoldsAFlushForAtMostTheRequestTimeout() throws Exception {
+        HttpRecordWriter writer = writer(Duration.ofMillis(500), 1 << 20);
+        status.set(503);
+        for (int i = 0; i < 6; i++) {
+            writer.append(bytes(String.valueOf(i)));
+            writer.flush();
+            Thread.sleep(5);
+        }
+        assertThat(spilled()).isEqualTo(6);
+
+        status.set(200);
+        delayMillis.set(300);
+        writer.append(bytes("6"));
+        long start = System.nanoTime();
+        writer.flush();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsed).isLessThan(1500);
+        assertThat(spilled()).isGreaterThan(1);
+    }
+
+    private HttpRecordWriter writer(Duration requestTimeout, long spillLimit) throws IOException {
+        return new HttpRecordWriter(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/ingest"),
+                Duration.ofSeconds(1), requestTimeout, Map.of(), Duration.ofMillis(1), Duration.ofMillis(1), spillDirectory, spillLimit);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream body = new GZIPInputStream(exchange.getRequestBody())) {
+            String content = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            Thread.sleep(delayMillis.get());
+            int code = status.get();
+            if (code == 200) {
+                received.add(content);
+                contentTypes.add(exchange.getRequestHeaders().getFirst("Content-Type") + ";" + exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            }
+            // a fresh connection per batch, so no post races the server closing an idle keep-alive connection
+            exchange.getResponseHeaders().set("Connection", "close");
+            exchange.sendResponseHeaders(code, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private long spilled() throws IOException {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SpillQueue.SUFFIX)).count();
+        }
+    }
+
+    private static byte[] bytes(String record) {
+        return record.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(String records) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes(records));
+        }
+        return out.toByteArray();
+    }
+}
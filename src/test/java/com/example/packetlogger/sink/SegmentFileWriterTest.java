@@ -0,0 +1,111 @@
+package com.example.packetlogger.sink;
+
+import com.example.packetlogger.format.RecordDecoder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentFileWriterTest {
+
+    private static final int SEGMENT_SIZE = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void oldestSegmentsBeyondMaxSegmentsAreDeleted() throws IOException {
+        SegmentFileWriter writer = new SegmentFileWriter(directory, "packet", SEGMENT_SIZE, Duration.ZERO, FsyncPolicy.NEVER, 3, Duration.ZERO);
+        for (int i = 0; i < 10; i++) {
+            writer.append(record(i));
+        }
+        writer.close();
+
+        assertThat(sequences()).containsExactly(7L, 8L, 9L);
+        assertThat(export()).isEqualTo(line(7) + line(8) + line(9));
+    }
+
+    @Test
+    void segmentsOlderThanMaxAgeAreDeletedOnRotation() throws IOException {
+        SegmentFileWriter writer = new SegmentFileWriter(directory, "packet", SEGMENT_SIZE, Duration.ZERO, FsyncPolicy.ROTATE, 0, Duration.ofHours(1));
+        writer.append(record(0));
+        writer.append(record(1));
+        Files.setLastModifiedTime(directory.resolve(Segments.name("packet", 0)), FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        writer.append(record(2));
+        writer.close();
+
+        assertThat(sequences()).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void unlimitedRetentionKeepsEverySegment() throws IOException {
+        SegmentFileWriter writer = new SegmentFileWriter(directory, "packet", SEGMENT_SIZE, Duration.ZERO, FsyncPolicy.NEVER);
+        for (int i = 0; i < 5; i++) {
+            writer.append(record(i));
+        }
+        writer.close();
+
+        assertThat(sequences()).containsExactly(0L, 1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void recoveryResumesAfterTheLastSegmentOfItsOwnPrefix() throws IOException {
+        SegmentFileWriter writer = new SegmentFileWriter(directory, "packet", SEGMENT_SIZE, Duration.ZERO, FsyncPolicy.NEVER);
+        writer.append(record(0));
+        writer.append(record(1));
+        writer.close();
+        Files.createFile(directory.resolve("packet-archive-00000000000000000099.seg"));
+        Files.createFile(directory.resolve("packet-old.seg"));
+        Files.createFile(directory.resolve("packet--1.seg"));
+
+        writer = new SegmentFileWriter(directory, "packet", SEGMENT_SIZE, Duration.ZERO, FsyncPolicy.NEVER);
+        writer.append(record(2));
+        writer.close();
+
+        assertThat(sequences()).containsExactly(0L, 1L, 2L);
+        assertThat(export()).isEqualTo(line(0) + line(1) + line(2));
+    }
+
+    @Test
+    void namesThatDoNotParseHaveNoSequence() {
+        assertThat(Segments.sequence(Path.of(Segments.name("packet", 42)), "packet")).isEqualTo(42);
+        assertThat(Segments.sequence(Path.of("packet-archive-00000000000000000001.seg"), "packet")).isEqualTo(-1);
+        assertThat(Segments.sequence(Path.of("packet-+1.seg"), "packet")).isEqualTo(-1);
+        assertThat(Segments.sequence(Path.of("packet-.seg"), "packet")).isEqualTo(-1);
+        assertThat(Segments.sequence(Path.of("packet-99999999999999999999.seg"), "packet")).isEqualTo(-1);
+    }
+
+    private List<Long> sequences() throws IOException {
+        return Segments.list(directory, "packet").stream()
+                .map(segment -> Segments.sequence(segment, "packet"))
+                .collect(Collectors.toList());
+    }
+
+    private String export() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SegmentReader.export(directory, "packet", out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One record per segment: two of them do not fit in {@link #SEGMENT_SIZE} bytes.
+     */
+    private static byte[] record(int i) {
+        return ("{\"n\":" + i + ",\"pad\":\"xxxxxxxxxxxxxxxxxxxx\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String line(int i) {
+        return new String(record(i), StandardCharsets.UTF_8) + "\n";
+    }
+}
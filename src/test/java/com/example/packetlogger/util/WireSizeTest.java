@@ -0,0 +1,98 @@
+package com.example.packetlogger.util;
+
+import com.example.packetlogger.filter.PacketDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WireSizeTest {
+
+    @Test
+    void utf8LengthMatchesTheEncoder() {
+        String[] payloads = {
+                "",
+                "application/json",
+                "café über",
+                "한글 테스트",
+                "emoji 😀 and 👍",
+                "lone \ud800 high",
+                "lone \udc00 low",
+                "reversed \udc00\ud800 pair",
+                "trailing \ud83d",
+        };
+        for (String payload : payloads) {
+            assertThat(WireSize.utf8Length(payload))
+                    .as(payload)
+                    .isEqualTo(payload.getBytes(StandardCharsets.UTF_8).length);
+        }
+    }
+
+    @Test
+    void numericValuesCountTheirDigits() {
+        long[] values = {0, 7, 10, 99, 1024, -1, -1000, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            assertThat(WireSize.digits(value)).as("%d", value).isEqualTo(Long.toString(value).length());
+        }
+        assertThat(WireSize.length(65536)).isEqualTo(5);
+        assertThat(WireSize.length((short) -12)).isEqualTo(3);
+        assertThat(WireSize.length(1.5)).isEqualTo(3);
+    }
+
+    @Test
+    void headerLinesMatchTheirEncodedSize() {
+        Map<String, Object> headers = new LinkedHashMap<>();
+        headers.put("content-type", "text/plain; charset=utf-8");
+        headers.put("content-length", 1234);
+        headers.put("x-name", "홍길동");
+        headers.put("x-missing", null);
+
+        int expected = 0;
+        for (Map.Entry<String, Object> header : headers.entrySet()) {
+            if (header.getValue() != null) {
+                expected += (header.getKey() + ": " + header.getValue() + "\r\n").getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        assertThat(WireSize.headers(headers)).isEqualTo(expected);
+        assertThat(WireSize.header(null, "x")).isZero();
+    }
+
+    /**
+     * Jackson's byte generator writes supplementary characters as escaped surrogate pairs, so the packet sticks to the BMP.
+     */
+    @Test
+    void serializedPacketMatchesObjectMapperBytes() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        Map<String, Object> headers = new LinkedHashMap<>();
+        headers.put("user-agent", "테스트 € ✓");
+        headers.put("content-length", 42);
+        PacketDto packet = PacketDto.builder()
+                .event(PacketDto.Event.builder()
+                        .start(LocalDateTime.of(2024, 1, 2, 3, 4, 5))
+                        .end(LocalDateTime.of(2024, 1, 2, 3, 4, 6))
+                        .duration(1_000_000_000L)
+                        .build())
+                .url(PacketDto.Url.urlBuilder().full("http://localhost/café?q=ü").path("/café").query("q=ü").build())
+                .http(PacketDto.Http.httpBuilder()
+                        .response(PacketDto.Response.responseBuilder()
+                                .code("오류")
+                                .headers(headers)
+                                .body(PacketDto.Body.builder().bytes(9).content("{\"a\":\"ß→中\"}").build())
+                                .statusCode(500)
+                                .build())
+                        .build())
+                .serviceName("서비스")
+                .method("get")
+                .statusCode(500)
+                .build();
+
+        String json = objectMapper.writeValueAsString(packet);
+        assertThat(WireSize.utf8Length(json)).isEqualTo(objectMapper.writeValueAsBytes(packet).length);
+    }
+}
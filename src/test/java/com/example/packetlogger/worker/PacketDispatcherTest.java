@@ -0,0 +1,62 @@
+package com.example.packetlogger.worker;
+
+import com.example.packetlogger.capture.BufferPool;
+import com.example.packetlogger.capture.CaptureBuffer;
+import com.example.packetlogger.dedup.BodyCache;
+import com.example.packetlogger.filter.PacketSnapshot;
+import com.example.packetlogger.metrics.MicrometerPacketMetrics;
+import com.example.packetlogger.metrics.PacketMetrics;
+import com.example.packetlogger.sampling.PacketSampler;
+import com.example.packetlogger.sink.PacketSink;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class PacketDispatcherTest {
+
+    private final Executor rejecting = command -> {
+        throw new RejectedExecutionException();
+    };
+
+    @Test
+    void rejectedSnapshotsAreCountedAndReleased() {
+        AtomicInteger recorded = new AtomicInteger();
+        PacketMetrics packetMetrics = new PacketMetrics() {
+            @Override
+            public void recordRejected() {
+                recorded.incrementAndGet();
+            }
+        };
+        BufferPool bufferPool = new BufferPool(4096, 1 << 20);
+        CaptureBuffer capture = new CaptureBuffer(1024, true, bufferPool);
+        capture.write("body".getBytes(StandardCharsets.UTF_8), 0, 4);
+        PacketDispatcher dispatcher = new PacketDispatcher(rejecting, null, packetMetrics);
+
+        dispatcher.dispatch(PacketSnapshot.builder().requestBody(capture.detach(StandardCharsets.UTF_8)).build());
+        dispatcher.dispatch(() -> PacketSnapshot.builder().build(), recorded::incrementAndGet);
+
+        assertThat(dispatcher.getRejectedCount()).isEqualTo(2);
+        assertThat(dispatcher.getPendingCount()).isZero();
+        assertThat(recorded).hasValue(3);
+        assertThat(bufferPool.getIdleBytes()).isEqualTo(1024);
+    }
+
+    @Test
+    void rejectionsReachTheMeterRegistry() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PacketMetrics packetMetrics = new MicrometerPacketMetrics(registry, mock(PacketSink.class), new PacketSampler(Collections.emptyList()), BodyCache.DISABLED);
+        PacketDispatcher dispatcher = new PacketDispatcher(rejecting, null, packetMetrics);
+
+        dispatcher.dispatch(PacketSnapshot.builder().build());
+
+        assertThat(registry.get("packet.logger.dispatcher.rejected").counter().count()).isEqualTo(1);
+    }
+}